@@ -0,0 +1,71 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.codebrothers.jpio.register.ArrayRegisterBank;
+import org.codebrothers.jpio.register.BufferRegisterBank;
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.register.UnsafeRegisterBank;
+
+/**
+ * The register access paths compared by the benchmarks, by name so they can be
+ * used as a JMH parameter.
+ */
+public class Backends {
+
+  /**
+   * Every backend name, for use in <code>@Param</code>.
+   */
+  public static final String BUFFER_HEAP = "buffer-heap";
+  public static final String BUFFER_DIRECT = "buffer-direct";
+  public static final String ARRAY = "array";
+  public static final String UNSAFE_HEAP = "unsafe-heap";
+  public static final String UNSAFE_DIRECT = "unsafe-direct";
+
+  private Backends() {
+    // cannot be constructed
+  }
+
+  /**
+   * Creates a bank using the named access path.
+   *
+   * @param name
+   *          The backend's name.
+   * @param size
+   *          The number of registers.
+   *
+   * @return The bank.
+   */
+  public static RegisterBank create(String name, int size) {
+    switch (name) {
+    case BUFFER_HEAP:
+      return new BufferRegisterBank(ByteBuffer.allocate(size * 4));
+    case BUFFER_DIRECT:
+      return new BufferRegisterBank(ByteBuffer.allocateDirect(size * 4));
+    case ARRAY:
+      return new ArrayRegisterBank(size);
+    case UNSAFE_HEAP:
+      return new UnsafeRegisterBank(new int[size]);
+    case UNSAFE_DIRECT:
+      return new UnsafeRegisterBank(ByteBuffer.allocateDirect(size * 4));
+    default:
+      throw new IllegalArgumentException("Unknown backend " + name);
+    }
+  }
+
+  /**
+   * A little endian view of a heap buffer, the debug registers before
+   * RegisterBank.
+   *
+   * @param size
+   *          The number of registers.
+   *
+   * @return The buffer.
+   */
+  public static IntBuffer heapIntBuffer(int size) {
+    return ByteBuffer.allocate(size * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+  }
+
+}
@@ -0,0 +1,88 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.GPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares GPIO.setPinValue and getPinValue on each access path, from a single
+ * thread and from several threads contending for the driver. JPIO can only be
+ * initialised once per JVM, each backend runs in its own fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GPIOBenchmark {
+
+  private static final int SIZE = 45;
+
+  @Param({ Backends.BUFFER_HEAP, Backends.BUFFER_DIRECT, Backends.ARRAY, Backends.UNSAFE_HEAP,
+      Backends.UNSAFE_DIRECT })
+  public String backend;
+
+  private boolean value;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    JPIO.init(Backends.create(backend, SIZE), Backends.create(backend, SIZE), Backends.create(backend, SIZE),
+        Backends.create(backend, SIZE));
+  }
+
+  @Benchmark
+  public void setPinValue() {
+    value = !value;
+    GPIO.setPinValue(GPIOPin.PIN4, value);
+  }
+
+  @Benchmark
+  public boolean getPinValue() {
+    return GPIO.getPinValue(GPIOPin.PIN4);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void setPinValueContended(Toggle toggle) {
+    GPIO.setPinValue(GPIOPin.PIN4, toggle.next());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean getPinValueContended() {
+    return GPIO.getPinValue(GPIOPin.PIN4);
+  }
+
+  /**
+   * The value each thread writes next, kept per thread so threads don't share
+   * a field as well as the driver.
+   */
+  @State(Scope.Thread)
+  public static class Toggle {
+
+    private boolean value;
+
+    boolean next() {
+      value = !value;
+      return value;
+    }
+
+  }
+
+}
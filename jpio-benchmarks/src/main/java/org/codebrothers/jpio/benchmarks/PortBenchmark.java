@@ -0,0 +1,84 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.port.shift595.Shift595;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times an atomic commit of a few pins to a 24 bit Shift595, alone and with
+ * several threads competing for the port. A thread which fails to begin an
+ * atomic operation yields and retries, as callers of
+ * {@link org.codebrothers.jpio.port.Port#beginAtomic()} must.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PortBenchmark {
+
+  private static final int BITS = 24;
+
+  private Shift595 port;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    JPIO.initDebug();
+    port = new Shift595(GPIOPin.PIN17, GPIOPin.PIN18, GPIOPin.PIN27, BITS);
+  }
+
+  @Benchmark
+  public void commit(Writer writer) {
+    writer.commit(port);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void commitContended(Writer writer) {
+    writer.commit(port);
+  }
+
+  /**
+   * Each thread's next pins and value.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+
+    private int pin;
+
+    private boolean value;
+
+    /*
+     * Writes three pins, the first twice so one write is coalesced.
+     */
+    void commit(Shift595 port) {
+      while (!port.beginAtomic()) {
+        Thread.yield();
+      }
+      value = !value;
+      pin = pin + 3 >= BITS ? 0 : pin + 3;
+      port.setPinValue(pin, !value);
+      port.setPinValue(pin, value);
+      port.setPinValue(pin + 1, value);
+      port.setPinValue(pin + 2, value);
+      port.completeAtomic();
+    }
+
+  }
+
+}
@@ -0,0 +1,126 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.register.RegisterBank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of single register operations on each access path, and on
+ * the IntBuffer path through BitUtils which the drivers used to take.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings("deprecation")
+public class RegisterBenchmark {
+
+  private static final int SIZE = 45;
+  private static final int INDEX = 7;
+  private static final int MASK = ~(0b111 << 12);
+
+  @Param({ Backends.BUFFER_HEAP, Backends.BUFFER_DIRECT, Backends.ARRAY, Backends.UNSAFE_HEAP,
+      Backends.UNSAFE_DIRECT })
+  public String backend;
+
+  private RegisterBank bank;
+
+  private IntBuffer buffer;
+
+  private int value;
+
+  @Setup
+  public void setup() {
+    bank = Backends.create(backend, SIZE);
+    buffer = Backends.heapIntBuffer(SIZE);
+  }
+
+  @Benchmark
+  public int get() {
+    return bank.get(INDEX);
+  }
+
+  @Benchmark
+  public void put() {
+    bank.put(INDEX, value++);
+  }
+
+  @Benchmark
+  public void putOrdered() {
+    bank.putOrdered(INDEX, value++);
+  }
+
+  @Benchmark
+  public void fence() {
+    bank.fence();
+  }
+
+  @Benchmark
+  public void setMaskedValue() {
+    bank.setMaskedValue(INDEX, MASK, (value++ & 0b111) << 12);
+  }
+
+  @Benchmark
+  public void setBits() {
+    bank.setBits(INDEX, 1 << (value++ & 31));
+  }
+
+  @Benchmark
+  public void clearMask() {
+    bank.clearMask(INDEX, ~(1 << (value++ & 31)));
+  }
+
+  @Benchmark
+  public boolean isBitSet() {
+    return bank.isBitSet(INDEX, 1 << 4);
+  }
+
+  @Benchmark
+  public boolean isBitClear() {
+    return bank.isBitClear(INDEX, 1 << 4);
+  }
+
+  /*
+   * The baselines, independent of the backend parameter.
+   */
+
+  @Benchmark
+  public void bitUtilsSetMaskedValue() {
+    org.codebrothers.jpio.util.BitUtils.setMaskedValue(buffer, INDEX, MASK, (value++ & 0b111) << 12);
+  }
+
+  @Benchmark
+  public void bitUtilsSetBits() {
+    org.codebrothers.jpio.util.BitUtils.setBits(buffer, INDEX, 1 << (value++ & 31));
+  }
+
+  @Benchmark
+  public void bitUtilsClearMask() {
+    org.codebrothers.jpio.util.BitUtils.clearMask(buffer, INDEX, ~(1 << (value++ & 31)));
+  }
+
+  @Benchmark
+  public boolean bitUtilsIsBitSet() {
+    return org.codebrothers.jpio.util.BitUtils.isBitSet(buffer, INDEX, 1 << 4);
+  }
+
+  @Benchmark
+  public boolean bitUtilsIsBitClear() {
+    return org.codebrothers.jpio.util.BitUtils.isBitClear(buffer, INDEX, 1 << 4);
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.spi.SPI;
+import org.codebrothers.jpio.spi.SPIControl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times SPI transfers against the debug registers, a byte at a time in a loop
+ * and as a single block transfer. The status bits the transfers wait on are
+ * set before starting, so every wait completes on its first check and only the
+ * driver's own cost is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SPIBenchmark {
+
+  /*
+   * The index of the control and status register.
+   */
+  private static final int CS = 0;
+
+  @Param({ "1", "32", "4096" })
+  public int length;
+
+  private ByteBuffer tx;
+
+  private ByteBuffer rx;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    JPIO.initDebug();
+    // TXD, RXD and DONE are never cleared by the driver, only by hardware
+    JPIO.SPI0.put(CS, SPIControl.TX_CAN_ACCEPT_DATA.value | SPIControl.RX_CONTAINS_DATA.value
+        | SPIControl.TRANSFER_DONE.value);
+    tx = ByteBuffer.allocateDirect(length);
+    rx = ByteBuffer.allocateDirect(length);
+  }
+
+  @Benchmark
+  public int transferLoop() {
+    int sum = 0;
+    for (int i = 0; i < length; i++) {
+      sum += SPI.transfer(tx.get(i));
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int transferBlock() {
+    tx.clear();
+    rx.clear();
+    return SPI.transfer(tx, rx);
+  }
+
+}
@@ -0,0 +1,90 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.pin.DigitalPin;
+import org.codebrothers.jpio.port.shift595.Shift595;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times a Shift595 flush of a whole chain, against the debug registers. The
+ * "gpio" path lets the port write the GPIO registers itself, the "pins" path
+ * hides the GPIO pins behind plain digital pins, so every edge goes through
+ * DigitalPin.setValue as it would for pins on another port.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Shift595Benchmark {
+
+  @Param({ "24", "576", "4096" })
+  public int bits;
+
+  @Param({ "gpio", "pins" })
+  public String path;
+
+  private Shift595 port;
+
+  private int pin;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    JPIO.initDebug();
+    if (path.equals("gpio")) {
+      port = new Shift595(GPIOPin.PIN17, GPIOPin.PIN18, GPIOPin.PIN27, bits);
+    } else {
+      port = new Shift595(new PlainPin(GPIOPin.PIN17), new PlainPin(GPIOPin.PIN18), new PlainPin(GPIOPin.PIN27),
+          bits);
+    }
+  }
+
+  /*
+   * Outside an atomic operation each change is flushed straight away, toggling
+   * a different pin each time so there is always a change to flush.
+   */
+  @Benchmark
+  public void flush() {
+    pin = pin + 1 == bits ? 0 : pin + 1;
+    port.setPinValue(pin, !port.getPinValue(pin));
+  }
+
+  /**
+   * A digital pin which isn't recognisably a GPIO pin.
+   */
+  static class PlainPin implements DigitalPin {
+
+    private final GPIOPin pin;
+
+    PlainPin(GPIOPin pin) {
+      this.pin = pin;
+    }
+
+    @Override
+    public Boolean getValue() {
+      return pin.getValue();
+    }
+
+    @Override
+    public void setValue(Boolean value) {
+      pin.setValue(value);
+    }
+
+  }
+
+}
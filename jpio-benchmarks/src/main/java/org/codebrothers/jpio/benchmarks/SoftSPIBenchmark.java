@@ -0,0 +1,76 @@
+package org.codebrothers.jpio.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.spi.SPIDataMode;
+import org.codebrothers.jpio.spi.SPIDevice;
+import org.codebrothers.jpio.spi.SPIFrequency;
+import org.codebrothers.jpio.spi.SoftSPI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the bit banged {@link SoftSPI} against the debug registers, in each
+ * data mode, a byte at a time and as a single block transfer. The device is
+ * rated fast enough that no half period is padded, so only the driver's own
+ * cost per bit is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SoftSPIBenchmark {
+
+  @Param({ "MODE0", "MODE1", "MODE2", "MODE3" })
+  public SPIDataMode mode;
+
+  @Param({ "1", "32", "4096" })
+  public int length;
+
+  private SoftSPI bus;
+
+  private ByteBuffer tx;
+
+  private ByteBuffer rx;
+
+  @Setup
+  public void setup() {
+    JPIO.initDebug();
+    bus = new SoftSPI(GPIOPin.PIN21, GPIOPin.PIN20, GPIOPin.PIN19);
+    bus.enter();
+    bus.select(new SPIDevice(GPIOPin.PIN16, mode, SPIFrequency.of(SPIFrequency.CORE_CLOCK_FREQUENCY / 2), false));
+    tx = ByteBuffer.allocateDirect(length);
+    rx = ByteBuffer.allocateDirect(length);
+  }
+
+  @Benchmark
+  public int transferLoop() {
+    int sum = 0;
+    for (int i = 0; i < length; i++) {
+      sum += bus.transfer(tx.get(i));
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int transferBlock() {
+    tx.clear();
+    rx.clear();
+    return bus.transfer(tx, rx);
+  }
+
+}
@@ -19,6 +19,12 @@
 /// Size of memory block on RPi
 #define BLOCK_SIZE              (4*1024)
 
+/// GPIO register offsets, in 32 bit words
+#define GPSET0                  7
+#define GPCLR0                  10
+#define GPLEV0                  13
+#define GPLEV1                  14
+
 static volatile uint32_t *gpio;
 static volatile uint32_t *pwm;
 static volatile uint32_t *clk;
@@ -125,4 +131,57 @@ JNIEXPORT jobject JNICALL Java_org_codebrothers_jpio_JPIO_getPWM(JNIEnv *env, jc
 JNIEXPORT jobject JNICALL Java_org_codebrothers_jpio_JPIO_getSPI0(JNIEnv *env, jclass this) {
   // 4 bytes per register, we need 45 registers
   return (*env)->NewDirectByteBuffer(env, (uint32_t *)spi0, 45*4);
-}
\ No newline at end of file
+}
+
+// Bulk operations. Arrays are pinned with GetPrimitiveArrayCritical so each
+// operation runs as a single tight loop, no JNI calls are made whilst pinned.
+
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_shiftOut0(JNIEnv *env, jclass this, jintArray bits, jint count,
+    jint dataMask, jint clockMask, jint latchMask) {
+  int i;
+  uint32_t *words = (uint32_t *) (*env)->GetPrimitiveArrayCritical(env, bits, NULL);
+  if (words == NULL) {
+    // out of memory, an exception is pending
+    return;
+  }
+  for (i = 0; i < count; i++) {
+    // write the data bit, then pulse the clock low then high to shift it in
+    gpio[((words[i >> 5] >> (i & 31)) & 1) ? GPSET0 : GPCLR0] = dataMask;
+    gpio[GPCLR0] = clockMask;
+    gpio[GPSET0] = clockMask;
+  }
+  if (latchMask != 0) {
+    // pulse the latch to transfer the shifted bits to the outputs
+    gpio[GPCLR0] = latchMask;
+    gpio[GPSET0] = latchMask;
+  }
+  // nothing was written, no need to copy back
+  (*env)->ReleasePrimitiveArrayCritical(env, bits, words, JNI_ABORT);
+}
+
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_sampleLevels0(JNIEnv *env, jclass this, jlongArray samples,
+    jint count) {
+  int i;
+  uint64_t *levels = (uint64_t *) (*env)->GetPrimitiveArrayCritical(env, samples, NULL);
+  if (levels == NULL) {
+    return;
+  }
+  for (i = 0; i < count; i++) {
+    levels[i] = gpio[GPLEV0] | ((uint64_t) gpio[GPLEV1] << 32);
+  }
+  (*env)->ReleasePrimitiveArrayCritical(env, samples, levels, 0);
+}
+
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_replay0(JNIEnv *env, jclass this, jintArray program,
+    jint length) {
+  int i;
+  uint32_t *steps = (uint32_t *) (*env)->GetPrimitiveArrayCritical(env, program, NULL);
+  if (steps == NULL) {
+    return;
+  }
+  // pairs of register offset and value
+  for (i = 0; i < length; i += 2) {
+    gpio[steps[i]] = steps[i + 1];
+  }
+  (*env)->ReleasePrimitiveArrayCritical(env, program, steps, JNI_ABORT);
+}
@@ -48,6 +48,30 @@ JNIEXPORT jobject JNICALL Java_org_codebrothers_jpio_JPIO_getPWM
 JNIEXPORT jobject JNICALL Java_org_codebrothers_jpio_JPIO_getSPI0
   (JNIEnv *, jclass);
 
+/*
+ * Class:     org_codebrothers_jpio_JPIO
+ * Method:    shiftOut0
+ * Signature: ([IIIII)V
+ */
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_shiftOut0
+  (JNIEnv *, jclass, jintArray, jint, jint, jint, jint);
+
+/*
+ * Class:     org_codebrothers_jpio_JPIO
+ * Method:    sampleLevels0
+ * Signature: ([JI)V
+ */
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_sampleLevels0
+  (JNIEnv *, jclass, jlongArray, jint);
+
+/*
+ * Class:     org_codebrothers_jpio_JPIO
+ * Method:    replay0
+ * Signature: ([II)V
+ */
+JNIEXPORT void JNICALL Java_org_codebrothers_jpio_JPIO_replay0
+  (JNIEnv *, jclass, jintArray, jint);
+
 #ifdef __cplusplus
 }
 #endif
@@ -4,9 +4,18 @@
  */
 package org.codebrothers.jpio;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.IntBuffer;
+import java.text.MessageFormat;
+
+import org.codebrothers.jpio.metrics.Metrics;
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.register.RegisterBanks;
+import org.codebrothers.jpio.register.WriteBatch;
+import org.codebrothers.jpio.trace.Peripheral;
+import org.codebrothers.jpio.trace.TraceRecorder;
+import org.codebrothers.jpio.trace.TracingRegisterBank;
 
 /**
  * The core JNI based mapping code for the JPIO library.
@@ -14,25 +23,72 @@ import java.nio.IntBuffer;
  * <strong>Remember:</strong> You must call JPIO.init() before you can use any
  * of the peripheral functions.
  * <p>
+ * The banks configured here form the default {@link JPIOContext}, which the
+ * drivers' static methods act on. Other boards can be driven alongside it
+ * through contexts of their own.
  * 
  * @author: Rick Watson
  */
 public class JPIO {
 
+  /**
+   * The system property choosing how {@link #init()} maps the registers: "jni"
+   * (the default), "mapped" for {@link #initMapped()} or "gpiomem" for
+   * {@link #initGPIOMem()}. Any other value is rejected.
+   */
+  public static final String BACKEND_PROPERTY = "jpio.backend";
+
+  /**
+   * The physical address of the peripherals, as seen by the ARM.
+   */
+  public static final long PERI_BASE = 0x20000000L;
+
+  /*
+   * The offsets of each block of registers from the peripheral base.
+   */
+  private static final long GPIO_OFFSET = 0x200000;
+  private static final long CLOCK_OFFSET = 0x101000;
+  private static final long PWM_OFFSET = 0x20C000;
+  private static final long SPI0_OFFSET = 0x204000;
+
+  /*
+   * The number of registers in each block mapped.
+   */
+  private static final int BLOCK_REGISTERS = 1024;
+
+  /*
+   * The number of registers in each debug bank.
+   */
+  private static final int DEBUG_REGISTERS = 45;
+
+  /*
+   * The GPIO registers used by the bulk operations.
+   */
+  private static final int GPSET0 = 7;
+  private static final int GPCLR0 = 10;
+  private static final int GPLEV0 = 13;
+  private static final int GPLEV1 = 14;
+
   // to prevent multiple instantiations
   private static boolean initialized = false;
 
+  // whether the native library is loaded, so the bulk operations can use it
+  private static boolean nativeBulk = false;
+
   // The GPIO registers, starting from 0x20200000
-  public static IntBuffer GPIO;
+  public static RegisterBank GPIO;
 
   // The clock registers, starting from 0x20101000
-  public static IntBuffer CLOCK;
+  public static RegisterBank CLOCK;
 
   // The PWM registers, starting from 0x2020C000
-  public static IntBuffer PWM;
+  public static RegisterBank PWM;
 
-  // The PWM registers, starting from 0x2020C000
-  public static IntBuffer SPI0;
+  // The SPI0 registers, starting from 0x20204000
+  public static RegisterBank SPI0;
+
+  // The banks above as a context, published once they are configured
+  private static volatile JPIOContext context;
 
   private JPIO() {
     // cannot be constructed
@@ -45,11 +101,23 @@ public class JPIO {
    */
   /*
    * Configures JPIO by getting the JVM direct access to the peripheral bus. The
-   * JNI functions bind the required memory regions to ByteBuffers. <p> It might
-   * be possible to get this to work with pure java using FileChannel but I've
-   * not had any success yet.
+   * JNI functions bind the required memory regions to ByteBuffers. <p> See
+   * initMapped() for the pure java equivalent using FileChannel.
    */
   public static synchronized void init() {
+    final String backend = System.getProperty(BACKEND_PROPERTY, "jni");
+    if (backend.equals("mapped")) {
+      initMapped();
+      return;
+    }
+    if (backend.equals("gpiomem")) {
+      initGPIOMem();
+      return;
+    }
+    if (!backend.equals("jni")) {
+      throw new IllegalArgumentException(MessageFormat.format(
+          "Unknown {0} \"{1}\", expected \"jni\", \"mapped\" or \"gpiomem\".", BACKEND_PROPERTY, backend));
+    }
     if (!initialized) {
       // we only attempt to initialize once.
       initialized = true;
@@ -59,11 +127,101 @@ public class JPIO {
       if (!initialize()) {
         throw new RuntimeException("Failed to initilize.");
       }
-      // fetch and wrap as int buffers
-      GPIO = wrapAsIntBuffer(getGPIO());
-      CLOCK = wrapAsIntBuffer(getClock());
-      PWM = wrapAsIntBuffer(getPWM());
-      SPI0 = wrapAsIntBuffer(getSPI0());
+      // fetch and wrap as register banks
+      GPIO = RegisterBanks.wrap(getGPIO());
+      CLOCK = RegisterBanks.wrap(getClock());
+      PWM = RegisterBanks.wrap(getPWM());
+      SPI0 = RegisterBanks.wrap(getSPI0());
+      nativeBulk = true;
+      configured();
+    }
+  }
+
+  /**
+   * Configures JPIO by mapping the peripheral registers from
+   * <code>/dev/mem</code> in pure Java, no native library is needed. Requires
+   * root.
+   * <p>
+   * An alternative to {@link #init()}, which can also be selected by setting
+   * the system property {@value #BACKEND_PROPERTY} to "mapped".
+   */
+  public static synchronized void initMapped() {
+    initMapped(new File("/dev/mem"), PERI_BASE);
+  }
+
+  /**
+   * Configures JPIO by mapping the peripheral registers from a file, each
+   * block at its usual offset from the base. Mapping an ordinary file allows
+   * the register accesses to be inspected without any hardware.
+   * 
+   * @param file
+   *          The file to map.
+   * @param peripheralBase
+   *          The offset of the peripherals in the file.
+   */
+  public static synchronized void initMapped(File file, long peripheralBase) {
+    if (!initialized) {
+      // we only attempt to initialize once.
+      initialized = true;
+      try {
+        GPIO = RegisterBanks.mapped(file, peripheralBase + GPIO_OFFSET, BLOCK_REGISTERS);
+        CLOCK = RegisterBanks.mapped(file, peripheralBase + CLOCK_OFFSET, BLOCK_REGISTERS);
+        PWM = RegisterBanks.mapped(file, peripheralBase + PWM_OFFSET, BLOCK_REGISTERS);
+        SPI0 = RegisterBanks.mapped(file, peripheralBase + SPI0_OFFSET, BLOCK_REGISTERS);
+        configured();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to initilize.", e);
+      }
+    }
+  }
+
+  /**
+   * Configures JPIO by mapping only the GPIO registers from
+   * <code>/dev/gpiomem</code>, which doesn't need root. The clock, PWM and SPI
+   * registers are not available, their drivers throw an IllegalStateException
+   * when used.
+   * <p>
+   * An alternative to {@link #init()}, which can also be selected by setting
+   * the system property {@value #BACKEND_PROPERTY} to "gpiomem".
+   */
+  public static synchronized void initGPIOMem() {
+    if (!initialized) {
+      // we only attempt to initialize once.
+      initialized = true;
+      try {
+        GPIO = RegisterBanks.mapped(new File("/dev/gpiomem"), 0, BLOCK_REGISTERS);
+        CLOCK = RegisterBanks.unavailable("The clock registers aren't available through /dev/gpiomem.");
+        PWM = RegisterBanks.unavailable("The PWM registers aren't available through /dev/gpiomem.");
+        SPI0 = RegisterBanks.unavailable("The SPI0 registers aren't available through /dev/gpiomem.");
+        configured();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to initilize.", e);
+      }
+    }
+  }
+
+  /**
+   * Configures JPIO with the supplied register banks, allowing instrumented,
+   * simulated or alternative access paths to be used by the drivers.
+   * 
+   * @param gpio
+   *          The GPIO registers.
+   * @param clock
+   *          The clock registers.
+   * @param pwm
+   *          The PWM registers.
+   * @param spi0
+   *          The SPI0 registers.
+   */
+  public static synchronized void init(RegisterBank gpio, RegisterBank clock, RegisterBank pwm, RegisterBank spi0) {
+    if (!initialized) {
+      // we only attempt to initialize once.
+      initialized = true;
+      GPIO = gpio;
+      CLOCK = clock;
+      PWM = pwm;
+      SPI0 = spi0;
+      configured();
     }
   }
 
@@ -71,45 +229,203 @@ public class JPIO {
     if (!initialized) {
       // we only attempt to initialize once.
       initialized = true;
-      // fetch and wrap as int buffers
-      GPIO = wrapAsIntBuffer(ByteBuffer.allocate(45 * 4));
-      CLOCK = wrapAsIntBuffer(ByteBuffer.allocate(45 * 4));
-      PWM = wrapAsIntBuffer(ByteBuffer.allocate(45 * 4));
-      SPI0 = wrapAsIntBuffer(ByteBuffer.allocate(45 * 4));
+      // plain arrays, nothing is connected
+      GPIO = RegisterBanks.heap(DEBUG_REGISTERS);
+      CLOCK = RegisterBanks.heap(DEBUG_REGISTERS);
+      PWM = RegisterBanks.heap(DEBUG_REGISTERS);
+      SPI0 = RegisterBanks.heap(DEBUG_REGISTERS);
+      configured();
+    }
+  }
+
+  /**
+   * Wraps each of the configured register banks in a
+   * {@link TracingRegisterBank}, so every access made by the drivers can be
+   * recorded. Must be called after JPIO is initialised, banks which aren't
+   * available are left unset. The default context is kept, its banks are
+   * wrapped in place.
+   * <p>
+   * Nothing is recorded until the recorder is started. The native bulk
+   * operations bypass the banks and aren't recorded. Calling this again
+   * replaces the recorder, each access is only ever recorded once.
+   * 
+   * @param recorder
+   *          The recorder to record to.
+   */
+  public static synchronized void trace(TraceRecorder recorder) {
+    if (!initialized) {
+      throw new IllegalStateException("JPIO must be initialized before it can be traced.");
+    }
+    GPIO = trace(GPIO, Peripheral.GPIO, recorder);
+    CLOCK = trace(CLOCK, Peripheral.CLOCK, recorder);
+    PWM = trace(PWM, Peripheral.PWM, recorder);
+    SPI0 = trace(SPI0, Peripheral.SPI0, recorder);
+    // the default context keeps its identity, lock and SPI selection
+    context.replaceBanks(GPIO, CLOCK, PWM, SPI0);
+  }
+
+  /**
+   * The default context, holding the configured register banks, which the
+   * drivers' static methods act on.
+   * 
+   * @return The context.
+   * 
+   * @throws IllegalStateException
+   *           If JPIO hasn't been initialised.
+   */
+  public static JPIOContext context() {
+    final JPIOContext current = context;
+    if (current == null) {
+      throw new IllegalStateException("JPIO must be initialized before its context can be used.");
+    }
+    return current;
+  }
+
+  /*
+   * Wraps the banks to count their accesses, only if metrics are enabled, then
+   * publishes them as the default context.
+   */
+  private static void configured() {
+    GPIO = Metrics.meter(GPIO, Peripheral.GPIO);
+    CLOCK = Metrics.meter(CLOCK, Peripheral.CLOCK);
+    PWM = Metrics.meter(PWM, Peripheral.PWM);
+    SPI0 = Metrics.meter(SPI0, Peripheral.SPI0);
+    context = new JPIOContext(GPIO, CLOCK, PWM, SPI0);
+  }
+
+  private static RegisterBank trace(RegisterBank bank, Peripheral peripheral, TraceRecorder recorder) {
+    if (bank instanceof TracingRegisterBank) {
+      // already traced, replace the recorder rather than recording twice
+      bank = ((TracingRegisterBank) bank).getBank();
+    }
+    return bank == null ? null : new TracingRegisterBank(bank, peripheral, recorder);
+  }
+
+  /**
+   * Bit bangs a packed array of bits out on a data and clock pin, such as into
+   * a chain of shift registers. For each bit the data pin is set or cleared,
+   * then the clock pin is pulsed low then high. If a latch mask is given the
+   * latch pin is pulsed low then high once every bit has been shifted.
+   * <p>
+   * The pins are given as their values in the first set and clear registers,
+   * so must be GPIO 0 to 31. With the native backend the whole sequence is a
+   * single JNI call, otherwise it is written through {@link #GPIO} as a
+   * {@link WriteBatch}.
+   * 
+   * @param bits
+   *          The bits to shift out, packed 32 to an int with bit 0 of the first
+   *          int shifted first.
+   * @param count
+   *          The number of bits to shift out.
+   * @param dataMask
+   *          The value of the data pin.
+   * @param clockMask
+   *          The value of the clock pin.
+   * @param latchMask
+   *          The value of the latch pin, or 0 for no latch.
+   */
+  public static void shiftOut(final int[] bits, final int count, final int dataMask, final int clockMask,
+      final int latchMask) {
+    if (count < 0 || count > (long) bits.length * 32) {
+      throw new IllegalArgumentException("Bit count out of range. Received " + count + ", must be at least 0 and "
+          + "at most " + (long) bits.length * 32 + ".");
+    }
+    if (nativeBulk) {
+      shiftOut0(bits, count, dataMask, clockMask, latchMask);
+      return;
+    }
+    try (WriteBatch batch = WriteBatch.begin(GPIO)) {
+      for (int i = 0; i < count; i++) {
+        batch.put((bits[i >>> 5] & 1 << i) != 0 ? GPSET0 : GPCLR0, dataMask);
+        batch.put(GPCLR0, clockMask);
+        batch.put(GPSET0, clockMask);
+      }
+      if (latchMask != 0) {
+        batch.put(GPCLR0, latchMask);
+        batch.put(GPSET0, latchMask);
+      }
+    }
+  }
+
+  /**
+   * Samples the levels of every GPIO pin as fast as they can be read. With the
+   * native backend the sampling is a single JNI call, otherwise the samples
+   * are read through {@link #GPIO}.
+   * 
+   * @param samples
+   *          The array to fill, each sample holds pins 0 to 31 in its low word
+   *          and pins 32 to 53 in its high word.
+   * @param count
+   *          The number of samples to take.
+   */
+  public static void sampleLevels(final long[] samples, final int count) {
+    if (count < 0 || count > samples.length) {
+      throw new IllegalArgumentException("Sample count out of range. Received " + count + ", must be at least 0 "
+          + "and at most " + samples.length + ".");
+    }
+    if (nativeBulk) {
+      sampleLevels0(samples, count);
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      samples[i] = GPIO.get(GPLEV0) & 0xFFFFFFFFL | (long) GPIO.get(GPLEV1) << 32;
+    }
+  }
+
+  /**
+   * Replays a program of writes to the GPIO registers, in order. With the
+   * native backend the program is a single JNI call, otherwise it is written
+   * through {@link #GPIO} as a {@link WriteBatch}.
+   * 
+   * @param program
+   *          Pairs of register index then value to write.
+   * @param length
+   *          The number of ints of the program to replay, must be even.
+   */
+  public static void replay(final int[] program, final int length) {
+    if (length < 0 || length > program.length || (length & 1) != 0) {
+      throw new IllegalArgumentException("Program length out of range. Received " + length + ", must be even, at "
+          + "least 0 and at most " + program.length + ".");
+    }
+    // the native side writes without checking, so every register is checked
+    for (int i = 0; i < length; i += 2) {
+      if (program[i] < 0 || program[i] >= GPIO.size()) {
+        throw new IllegalArgumentException("Register out of range at " + i + ". Received " + program[i]
+            + ", must be at least 0 and less than " + GPIO.size() + ".");
+      }
+    }
+    if (nativeBulk) {
+      replay0(program, length);
+      return;
+    }
+    try (WriteBatch batch = WriteBatch.begin(GPIO)) {
+      for (int i = 0; i < length; i += 2) {
+        batch.put(program[i], program[i + 1]);
+      }
     }
   }
 
   public static void printGPIO() {
-    printIntBuffer(GPIO);
+    printBank(GPIO);
   }
 
   public static void printCLOCK() {
-    printIntBuffer(CLOCK);
+    printBank(CLOCK);
   }
 
   public static void printPWM() {
-    printIntBuffer(PWM);
+    printBank(PWM);
   }
 
-  private static void printIntBuffer(IntBuffer intBuff) {
-    for (int i = 0; i < intBuff.capacity(); i++) {
-      final StringBuilder sb = new StringBuilder(Integer.toBinaryString(intBuff.get(i)));
+  private static void printBank(RegisterBank bank) {
+    for (int i = 0; i < bank.size(); i++) {
+      final StringBuilder sb = new StringBuilder(Integer.toBinaryString(bank.get(i)));
       while (sb.length() < 32)
         sb.insert(0, "0");
       System.out.println("Offset " + i + ":\t" + sb);
     }
   }
 
-  /*
-   * Remember that the data structure we are getting is going to be in little
-   * endian byte order. We must make the ByteBuffer aware of this or the bytes
-   * will be mirrored and our IntBuffer will inherit this!
-   */
-  private static IntBuffer wrapAsIntBuffer(ByteBuffer buf) {
-    buf.order(ByteOrder.LITTLE_ENDIAN);
-    return buf.asIntBuffer();
-  }
-
   private static native boolean initialize();
 
   private static native ByteBuffer getGPIO();
@@ -120,4 +436,10 @@ public class JPIO {
 
   private static native ByteBuffer getSPI0();
 
+  private static native void shiftOut0(int[] bits, int count, int dataMask, int clockMask, int latchMask);
+
+  private static native void sampleLevels0(long[] samples, int count);
+
+  private static native void replay0(int[] program, int length);
+
 }
\ No newline at end of file
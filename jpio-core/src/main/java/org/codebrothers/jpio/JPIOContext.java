@@ -0,0 +1,164 @@
+package org.codebrothers.jpio;
+
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.register.RegisterBanks;
+import org.codebrothers.jpio.spi.SPISelection;
+
+/**
+ * One board's peripherals: its register banks and the driver state which
+ * belongs to them.
+ * <p>
+ * The drivers' static methods act on the default context, the one configured
+ * by {@link JPIO#init()} and its alternatives and returned by
+ * {@link JPIO#context()}. Each also has an overload taking a context, so any
+ * number of boards, such as simulated ones, can be driven in one JVM:
+ *
+ * <pre>
+ * JPIOContext board = new JPIOContext(gpio, clock, pwm, spi0);
+ * GPIO.setPinFunction(board, GPIOPin.PIN4, Function.OUTPUT);
+ * GPIOPin.PIN4.setValue(board, true);
+ * </pre>
+ *
+ * GPIO's read-modify-writes and SPI's device selection hold the context's
+ * {@link #lock()}, so pins on one board can be changed from several threads,
+ * independently of every other context. The clock, PWM and SPI transfer
+ * methods take no lock: each call reads the bank it needs afresh, but callers
+ * sharing one of those peripherals between threads must serialise their calls
+ * themselves.
+ * <p>
+ * The default context keeps its identity for the life of the JVM.
+ * {@link JPIO#trace(org.codebrothers.jpio.trace.TraceRecorder)} wraps its banks
+ * in place, the only time a context's banks change, so its lock and SPI
+ * selection carry on as they were.
+ */
+public class JPIOContext {
+
+  /*
+   * The number of registers in each debug bank.
+   */
+  private static final int DEBUG_REGISTERS = 45;
+
+  /*
+   * The GPIO registers.
+   */
+  private volatile RegisterBank gpio;
+
+  /*
+   * The clock registers.
+   */
+  private volatile RegisterBank clock;
+
+  /*
+   * The PWM registers.
+   */
+  private volatile RegisterBank pwm;
+
+  /*
+   * The SPI0 registers.
+   */
+  private volatile RegisterBank spi0;
+
+  /**
+   * The SPI0 configuration and chip select last applied, so that transfers to
+   * the same device needn't reconfigure the bus.
+   */
+  public final SPISelection spiSelection = new SPISelection();
+
+  /*
+   * Serialises GPIO's read-modify-writes and SPI's selection on this board.
+   */
+  private final Object lock = new Object();
+
+  /**
+   * Constructs a context over a set of register banks. Banks which aren't
+   * available may be null, their drivers can't then be used.
+   *
+   * @param gpio
+   *          The GPIO registers.
+   * @param clock
+   *          The clock registers.
+   * @param pwm
+   *          The PWM registers.
+   * @param spi0
+   *          The SPI0 registers.
+   */
+  public JPIOContext(RegisterBank gpio, RegisterBank clock, RegisterBank pwm, RegisterBank spi0) {
+    this.gpio = gpio;
+    this.clock = clock;
+    this.pwm = pwm;
+    this.spi0 = spi0;
+  }
+
+  /**
+   * A context over plain arrays with nothing connected, the equivalent of
+   * {@link JPIO#initDebug()}.
+   *
+   * @return The context.
+   */
+  public static JPIOContext debug() {
+    return new JPIOContext(RegisterBanks.heap(DEBUG_REGISTERS), RegisterBanks.heap(DEBUG_REGISTERS),
+        RegisterBanks.heap(DEBUG_REGISTERS), RegisterBanks.heap(DEBUG_REGISTERS));
+  }
+
+  /**
+   * The GPIO registers.
+   *
+   * @return The bank, or null if it isn't available.
+   */
+  public RegisterBank gpio() {
+    return gpio;
+  }
+
+  /**
+   * The clock registers.
+   *
+   * @return The bank, or null if it isn't available.
+   */
+  public RegisterBank clock() {
+    return clock;
+  }
+
+  /**
+   * The PWM registers.
+   *
+   * @return The bank, or null if it isn't available.
+   */
+  public RegisterBank pwm() {
+    return pwm;
+  }
+
+  /**
+   * The SPI0 registers.
+   *
+   * @return The bank, or null if it isn't available.
+   */
+  public RegisterBank spi0() {
+    return spi0;
+  }
+
+  /**
+   * The lock GPIO and SPI's selection hold whilst changing this board's pins
+   * and remembered SPI device. Callers may hold it to make a sequence of pin
+   * changes atomic with respect to other threads.
+   *
+   * @return The lock.
+   */
+  public Object lock() {
+    return lock;
+  }
+
+  /*
+   * Replaces the banks, under the lock so no locked operation straddles
+   * the change. The fields are volatile, so unlocked drivers see each new bank
+   * on their next access.
+   */
+  void replaceBanks(RegisterBank gpio, RegisterBank clock, RegisterBank pwm, RegisterBank spi0) {
+    synchronized (lock) {
+      this.gpio = gpio;
+      this.clock = clock;
+      this.pwm = pwm;
+      this.spi0 = spi0;
+    }
+  }
+
+}
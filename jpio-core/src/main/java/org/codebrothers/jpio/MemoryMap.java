@@ -0,0 +1,135 @@
+package org.codebrothers.jpio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.text.MessageFormat;
+
+/**
+ * Maps windows of a file, such as <code>/dev/mem</code> or
+ * <code>/dev/gpiomem</code>, into direct ByteBuffers without any native code.
+ * <p>
+ * Ordinary files are mapped with {@link FileChannel#map(MapMode, long, long)}.
+ * Device files report a size of zero, which FileChannel treats as a file to be
+ * extended to the size of the mapping, and extending a device fails. For these
+ * the JDK's own mapping routine is called reflectively, skipping the extension,
+ * and the address wrapped in a direct buffer the same way JNI's
+ * NewDirectByteBuffer does.
+ * <p>
+ * Mapping devices relies on JDK internals, <code>FileChannelImpl.map0</code>
+ * and the <code>DirectByteBuffer(long, int)</code> constructor, in the forms
+ * found in Java 7 to 17. Other JDKs fail with an IOException saying so, where
+ * the JNI backend should be used instead. On Java 9 and above it also needs:
+ *
+ * <pre>
+ * --add-opens java.base/sun.nio.ch=ALL-UNNAMED --add-opens java.base/java.nio=ALL-UNNAMED
+ * </pre>
+ *
+ * Mappings are never unmapped, they are expected to live as long as the JVM.
+ */
+public final class MemoryMap {
+
+  /*
+   * FileChannelImpl's protection value for a read/write shared mapping.
+   */
+  private static final int MAP_READ_WRITE = 1;
+
+  private MemoryMap() {
+    // cannot be constructed
+  }
+
+  /**
+   * Maps a window of a file for reading and writing.
+   *
+   * @param file
+   *          The file to map.
+   * @param offset
+   *          The offset of the window into the file, must be page aligned.
+   * @param length
+   *          The length of the window in bytes.
+   *
+   * @return A direct buffer over the window.
+   *
+   * @throws IOException
+   *           If the file can't be opened or mapped, or a device can't be
+   *           mapped on this JDK.
+   */
+  public static ByteBuffer map(File file, long offset, int length) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      final FileChannel channel = raf.getChannel();
+      if (file.isFile()) {
+        return channel.map(MapMode.READ_WRITE, offset, length);
+      }
+      return mapDevice(channel, offset, length);
+    } finally {
+      // the mapping stays valid once the file is closed
+      raf.close();
+    }
+  }
+
+  /*
+   * Maps a device file by calling FileChannelImpl's native map0 directly. Its
+   * signature gained an isSync parameter in Java 14.
+   */
+  private static ByteBuffer mapDevice(FileChannel channel, long offset, int length) throws IOException {
+    final Method map0 = findMap0(channel.getClass());
+    final Constructor<?> constructor;
+    try {
+      constructor = Class.forName("java.nio.DirectByteBuffer").getDeclaredConstructor(long.class, int.class);
+    } catch (ReflectiveOperationException e) {
+      throw unsupported(e);
+    }
+    try {
+      map0.setAccessible(true);
+      final long address;
+      if (map0.getParameterTypes().length == 3) {
+        address = (Long) map0.invoke(channel, MAP_READ_WRITE, offset, (long) length);
+      } else {
+        address = (Long) map0.invoke(channel, MAP_READ_WRITE, offset, (long) length, false);
+      }
+      constructor.setAccessible(true);
+      return (ByteBuffer) constructor.newInstance(address, length);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        // the mapping itself failed, most likely a permissions problem
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IOException(MessageFormat.format("Unable to map device at offset 0x{0}, on Java 9+ run with "
+          + "--add-opens java.base/sun.nio.ch=ALL-UNNAMED --add-opens java.base/java.nio=ALL-UNNAMED.",
+          Long.toHexString(offset)), e);
+    }
+  }
+
+  /*
+   * Finds map0 in one of its known forms, (int, long, long) before Java 14 and
+   * (int, long, long, boolean) from it. Package visible so the failure on
+   * other JDKs can be tested against a class without map0.
+   */
+  static Method findMap0(Class<?> channelClass) throws IOException {
+    for (Method method : channelClass.getDeclaredMethods()) {
+      final Class<?>[] parameters = method.getParameterTypes();
+      if (method.getName().equals("map0") && method.getReturnType() == long.class
+          && (parameters.length == 3 || parameters.length == 4) && parameters[0] == int.class
+          && parameters[1] == long.class && parameters[2] == long.class
+          && (parameters.length == 3 || parameters[3] == boolean.class)) {
+        return method;
+      }
+    }
+    throw unsupported(null);
+  }
+
+  private static IOException unsupported(Throwable cause) {
+    return new IOException(MessageFormat.format("Mapping devices in pure Java isn''t supported on Java {0}, use the "
+        + "jni backend.", System.getProperty("java.version")), cause);
+  }
+
+}
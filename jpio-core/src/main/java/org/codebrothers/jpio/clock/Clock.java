@@ -1,11 +1,13 @@
 package org.codebrothers.jpio.clock;
 
-import static org.codebrothers.jpio.JPIO.CLOCK;
-import static org.codebrothers.jpio.util.BitUtils.isBitSet;
-import static org.codebrothers.jpio.util.BitUtils.setMaskedValue;
-
-import java.nio.IntBuffer;
 import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.metrics.Metrics;
+import org.codebrothers.jpio.register.RegisterBank;
 
 /**
  * Allows you to control the General Purpose Clock channels on the Raspberry Pi.
@@ -60,6 +62,40 @@ public class Clock {
    */
   private static int DIVISOR_FRACTION_SCALER = DIVISOR_COMPONENT + 1;
 
+  /*
+   * The sources by the value of the control register's source field. Values 8
+   * to 15 aren't listed, the hardware treats them as ground.
+   */
+  private static final ClockSource[] SOURCES = ClockSource.values();
+
+  /*
+   * The sources searched when synthesizing a frequency. PLLA is included but
+   * skipped whilst its frequency is unknown.
+   */
+  private static final ClockSource[] SYNTHESIS_SOURCES = { ClockSource.OSCILLATOR, ClockSource.PLLA,
+      ClockSource.PLLC, ClockSource.PLLD, ClockSource.HDMI };
+
+  /*
+   * The number of solutions kept, the least recently used are dropped first so
+   * sweeping through frequencies can't grow the cache without limit.
+   */
+  private static final int CACHED_SOLUTIONS = 64;
+
+  /*
+   * Recently found solutions, by frequency and policy. Guarded by itself.
+   */
+  private static final Map<SolutionKey, ClockSolution> SOLUTIONS = new LinkedHashMap<SolutionKey, ClockSolution>(
+      CACHED_SOLUTIONS, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<SolutionKey, ClockSolution> eldest) {
+      return size() > CACHED_SOLUTIONS;
+    }
+
+  };
+
   /**
    * Enables the channel. The channel's pin will be automatically configured to
    * output the clock.
@@ -68,8 +104,20 @@ public class Clock {
    *          The channel to disable.
    */
   public static void enable(ClockChannel channel) {
+    enable(JPIO.context(), channel);
+  }
+
+  /**
+   * Enables the channel on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to disable.
+   */
+  public static void enable(JPIOContext context, ClockChannel channel) {
     // enable the channel
-    setPasswordProtectedMaskedValue(CLOCK, channel.controlRegister, ENABLE_MASK, ENABLE_VALUE);
+    setPasswordProtectedMaskedValue(context.clock(), channel.controlRegister, ENABLE_MASK, ENABLE_VALUE);
   }
 
   /**
@@ -80,10 +128,22 @@ public class Clock {
    *          The channel to disable.
    */
   public static void disable(ClockChannel channel) {
+    disable(JPIO.context(), channel);
+  }
+
+  /**
+   * Disables the channel on a board, leaves it's other settings unchanged.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to disable.
+   */
+  public static void disable(JPIOContext context, ClockChannel channel) {
     // disable the clock
-    setPasswordProtectedMaskedValue(CLOCK, channel.controlRegister, ENABLE_MASK, 0);
+    setPasswordProtectedMaskedValue(context.clock(), channel.controlRegister, ENABLE_MASK, 0);
     // wait for the channel to go idle
-    awaitIdle(channel);
+    awaitIdle(context, channel);
   }
 
   /**
@@ -94,11 +154,23 @@ public class Clock {
    *          The channel to reset.
    */
   public static void resetChannel(ClockChannel channel) {
+    resetChannel(JPIO.context(), channel);
+  }
+
+  /**
+   * Disables the channel on a board and resets it's settings.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to reset.
+   */
+  public static void resetChannel(JPIOContext context, ClockChannel channel) {
     // disable the channel
-    disable(channel);
+    disable(context, channel);
     // reset both of the channel's registers
-    CLOCK.put(channel.controlRegister, CLOCK_MANAGER_PASSWORD);
-    CLOCK.put(channel.dividerRegister, CLOCK_MANAGER_PASSWORD);
+    context.clock().putOrdered(channel.controlRegister, CLOCK_MANAGER_PASSWORD);
+    context.clock().putOrdered(channel.dividerRegister, CLOCK_MANAGER_PASSWORD);
   }
 
   /**
@@ -112,8 +184,22 @@ public class Clock {
    *          The clock source to use.
    */
   public static void configureSource(final ClockChannel channel, final ClockSource source) {
-    disable(channel);
-    setPasswordProtectedMaskedValue(CLOCK, channel.controlRegister, ClockSource.SOURCE_MASK, source.value);
+    configureSource(JPIO.context(), channel, source);
+  }
+
+  /**
+   * Configures the channel's clock source on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to configure.
+   * @param source
+   *          The clock source to use.
+   */
+  public static void configureSource(final JPIOContext context, final ClockChannel channel, final ClockSource source) {
+    disable(context, channel);
+    setPasswordProtectedMaskedValue(context.clock(), channel.controlRegister, ClockSource.SOURCE_MASK, source.value);
   }
 
   /**
@@ -127,13 +213,27 @@ public class Clock {
    *          The mash setting to apply.
    */
   public static void configureMash(final ClockChannel channel, final ClockMash mash) {
-    disable(channel);
-    setPasswordProtectedMaskedValue(CLOCK, channel.controlRegister, ClockMash.MASH_MASK, mash.value);
+    configureMash(JPIO.context(), channel, mash);
+  }
+
+  /**
+   * Configures the channel's MASH setting on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to configure.
+   * @param mash
+   *          The mash setting to apply.
+   */
+  public static void configureMash(final JPIOContext context, final ClockChannel channel, final ClockMash mash) {
+    disable(context, channel);
+    setPasswordProtectedMaskedValue(context.clock(), channel.controlRegister, ClockMash.MASH_MASK, mash.value);
   }
 
   /**
    * Configures the channel's divisor, handling the conversion from float to
-   * fixed point value.
+   * fixed point value. The fraction is rounded to the nearest 1/4096.
    * <p>
    * Disables the channel!
    * 
@@ -147,35 +247,327 @@ public class Clock {
    *           integer/12 bit fractional fixed point value.
    */
   public static void configureDivisor(ClockChannel channel, float divisor) {
-    disable(channel);
-    final int integerPart = (int) divisor;
-    if (integerPart < 0 && integerPart > DIVISOR_COMPONENT) {
-      throw new RuntimeException(MessageFormat.format("Integer part of divisor out of range. Recieved {0}, max {1}.",
-          integerPart, DIVISOR_COMPONENT));
+    configureDivisor(JPIO.context(), channel, divisor);
+  }
+
+  /**
+   * Configures the channel's divisor on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to configure.
+   * @param divisor
+   *          The divisor to use.
+   * 
+   * @throws IllegalArgumentException
+   *           If the divisor is out of the supported range of the 12 bit
+   *           integer/12 bit fractional fixed point value.
+   */
+  public static void configureDivisor(JPIOContext context, ClockChannel channel, float divisor) {
+    // convert before disabling so a bad divisor leaves the channel running
+    final int divisorValue = ClockConfig.toDivisorValue(divisor);
+    disable(context, channel);
+    context.clock().put(channel.dividerRegister, CLOCK_MANAGER_PASSWORD | divisorValue);
+  }
+
+  /**
+   * Applies a complete config to the channel in a single pass and enables it.
+   * <p>
+   * The channel is disabled once and, after it has gone idle, the control and
+   * divisor registers are each written once before the channel is re-enabled.
+   * This is quicker and glitches less than configuring the source, MASH and
+   * divisor separately, each of which disables the channel.
+   * 
+   * @param channel
+   *          The channel to configure.
+   * @param config
+   *          The config to apply.
+   * 
+   * @return The time taken for the channel to go idle in nanoseconds.
+   */
+  public static long apply(ClockChannel channel, ClockConfig config) {
+    return apply(JPIO.context(), channel, config);
+  }
+
+  /**
+   * Applies a complete config to the channel on a board in a single pass and enables it.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to configure.
+   * @param config
+   *          The config to apply.
+   * 
+   * @return The time taken for the channel to go idle in nanoseconds.
+   */
+  public static long apply(JPIOContext context, ClockChannel channel, ClockConfig config) {
+    final RegisterBank clock = context.clock();
+    // disable the clock, keeping the current source until it is idle
+    setPasswordProtectedMaskedValue(clock, channel.controlRegister, ENABLE_MASK, 0);
+    final long idleNs = awaitIdle(context, channel);
+    // the source must be set before the clock is enabled
+    clock.putOrdered(channel.controlRegister, CLOCK_MANAGER_PASSWORD | config.controlValue);
+    clock.putOrdered(channel.dividerRegister, CLOCK_MANAGER_PASSWORD | config.divisorValue);
+    clock.putOrdered(channel.controlRegister, CLOCK_MANAGER_PASSWORD | config.controlValue | ENABLE_VALUE);
+    return idleNs;
+  }
+
+  /**
+   * Finds the source, MASH setting and divisor giving the closest match to a
+   * frequency, applies them to the channel and enables it.
+   * 
+   * @param channel
+   *          The channel to configure.
+   * @param frequency
+   *          The requested frequency in Hz.
+   * @param policy
+   *          The amount of jitter allowed in return for accuracy.
+   * 
+   * @return The solution applied, with the achieved frequency and jitter.
+   * 
+   * @throws IllegalArgumentException
+   *           If no source can produce the frequency.
+   */
+  public static ClockSolution synthesize(ClockChannel channel, double frequency, JitterPolicy policy) {
+    return synthesize(JPIO.context(), channel, frequency, policy);
+  }
+
+  /**
+   * Synthesizes the closest match to a frequency on the channel of a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to configure.
+   * @param frequency
+   *          The requested frequency in Hz.
+   * @param policy
+   *          The amount of jitter allowed in return for accuracy.
+   * 
+   * @return The solution applied, with the achieved frequency and jitter.
+   * 
+   * @throws IllegalArgumentException
+   *           If no source can produce the frequency.
+   */
+  public static ClockSolution synthesize(JPIOContext context, ClockChannel channel, double frequency,
+      JitterPolicy policy) {
+    final ClockSolution solution = solve(frequency, policy);
+    apply(context, channel, solution.config);
+    return solution;
+  }
+
+  /**
+   * Finds the source, MASH setting and divisor giving the closest match to a
+   * frequency, without touching any channel.
+   * <p>
+   * Every source with a known frequency is searched against the divisor limits
+   * of each MASH setting the policy allows. Of the closest matches the one with
+   * the least jitter wins, so integer division is used whenever it is exact.
+   * Every MASH stage gives the same average frequency for a fractional divisor,
+   * so that tie always goes to {@link ClockMash#STAGE1}. Recent solutions are
+   * cached, so repeated requests for the same frequency cost a map lookup.
+   * 
+   * @param frequency
+   *          The requested frequency in Hz.
+   * @param policy
+   *          The amount of jitter allowed in return for accuracy.
+   * 
+   * @return The best solution.
+   * 
+   * @throws IllegalArgumentException
+   *           If no source can produce the frequency.
+   */
+  public static ClockSolution solve(double frequency, JitterPolicy policy) {
+    final SolutionKey key = new SolutionKey(frequency, policy);
+    ClockSolution solution;
+    synchronized (SOLUTIONS) {
+      solution = SOLUTIONS.get(key);
     }
-    final int fractionalPart = (int) ((divisor - integerPart) * DIVISOR_FRACTION_SCALER);
-    if (fractionalPart < 0 && fractionalPart > DIVISOR_COMPONENT) {
-      throw new RuntimeException(MessageFormat.format(
-          "Fractional part of divisor out of range. Recieved {0}, max {1}.", fractionalPart, DIVISOR_COMPONENT));
+    if (solution == null) {
+      solution = search(frequency, policy);
+      synchronized (SOLUTIONS) {
+        SOLUTIONS.put(key, solution);
+      }
     }
-    CLOCK.put(channel.dividerRegister, CLOCK_MANAGER_PASSWORD | integerPart << 12 | fractionalPart);
+    return solution;
+  }
+
+  /**
+   * Reads the channel's current clock source.
+   * 
+   * @param channel
+   *          The channel to read.
+   * 
+   * @return The clock source, {@link ClockSource#GND} for the unused source
+   *         values 8 to 15 as the hardware treats them as ground.
+   */
+  public static ClockSource getSource(ClockChannel channel) {
+    return getSource(JPIO.context(), channel);
+  }
+
+  /**
+   * Reads the channel's current clock source on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to read.
+   * 
+   * @return The clock source, {@link ClockSource#GND} for the unused source
+   *         values 8 to 15.
+   */
+  public static ClockSource getSource(JPIOContext context, ClockChannel channel) {
+    final int source = context.clock().get(channel.controlRegister) & ~ClockSource.SOURCE_MASK;
+    return source < SOURCES.length ? SOURCES[source] : ClockSource.GND;
+  }
+
+  /**
+   * Reads the channel's current divisor, converting from the fixed point
+   * value.
+   * 
+   * @param channel
+   *          The channel to read.
+   * 
+   * @return The divisor.
+   */
+  public static float getDivisor(ClockChannel channel) {
+    return getDivisor(JPIO.context(), channel);
+  }
+
+  /**
+   * Reads the channel's current divisor on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param channel
+   *          The channel to read.
+   * 
+   * @return The divisor.
+   */
+  public static float getDivisor(JPIOContext context, ClockChannel channel) {
+    final int divisor = context.clock().get(channel.dividerRegister);
+    return (divisor >> 12 & DIVISOR_COMPONENT) + (divisor & DIVISOR_COMPONENT) / (float) DIVISOR_FRACTION_SCALER;
   }
 
   /*
-   * Spins a loop till busy bit goes clear
+   * Tries every allowed source and MASH setting for the closest match.
    */
-  private static void awaitIdle(ClockChannel channel) {
-    while (isBitSet(CLOCK, channel.controlRegister, BUSY_BIT)) {
+  private static ClockSolution search(double frequency, JitterPolicy policy) {
+    if (!(frequency > 0)) {
+      throw new IllegalArgumentException(MessageFormat.format("Frequency must be positive. Received {0}.", frequency));
+    }
+    ClockSolution best = null;
+    for (ClockSource source : SYNTHESIS_SOURCES) {
+      if (source.frequency == 0) {
+        // frequency not known, can't be solved for
+        continue;
+      }
+      final double ideal = source.frequency / frequency;
+      for (ClockMash mash : ClockMash.values()) {
+        if (mash.ordinal() > policy.maxMash.ordinal()) {
+          break;
+        }
+        if (mash == ClockMash.INT) {
+          best = better(best, candidate(source, mash, Math.floor(ideal), frequency));
+          best = better(best, candidate(source, mash, Math.ceil(ideal), frequency));
+        } else {
+          final double divisor = Math.round(ideal * DIVISOR_FRACTION_SCALER) / (double) DIVISOR_FRACTION_SCALER;
+          if (divisor != Math.floor(divisor)) {
+            // whole divisors are covered, jitter free, by integer division
+            best = better(best, candidate(source, mash, divisor, frequency));
+          }
+        }
+      }
+    }
+    if (best == null) {
+      throw new IllegalArgumentException(MessageFormat.format("No clock source can produce {0}Hz.", frequency));
     }
+    return best;
+  }
+
+  /*
+   * Builds the solution for a divisor, null if it is out of the MASH setting's
+   * range.
+   */
+  private static ClockSolution candidate(ClockSource source, ClockMash mash, double divisor, double frequency) {
+    if (divisor < mash.minDivisor || divisor >= DIVISOR_FRACTION_SCALER) {
+      return null;
+    }
+    final ClockConfig config = new ClockConfig(source, mash, divisor);
+    final double jitter = mash == ClockMash.INT ? 0 : mash.jitterCycles / (double) source.frequency;
+    return new ClockSolution(config, config.getFrequency(), jitter, frequency);
+  }
+
+  /*
+   * The more accurate of two solutions, or the one with less jitter if they
+   * are equally accurate.
+   */
+  private static ClockSolution better(ClockSolution best, ClockSolution candidate) {
+    if (candidate == null) {
+      return best;
+    }
+    if (best == null || candidate.error < best.error
+        || (candidate.error == best.error && candidate.worstCaseJitter < best.worstCaseJitter)) {
+      return candidate;
+    }
+    return best;
+  }
+
+  /*
+   * Spins a loop till busy bit goes clear, returns the time taken in
+   * nanoseconds.
+   */
+  private static long awaitIdle(JPIOContext context, ClockChannel channel) {
+    final RegisterBank clock = context.clock();
+    final long start = System.nanoTime();
+    long spins = 0;
+    while (clock.isBitSet(channel.controlRegister, BUSY_BIT)) {
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.CLOCK.record(spins);
+    }
+    return System.nanoTime() - start;
   }
 
   /*
    * Adds the password to the masked value we are inserting. Remember we
    * neededn't add the password bits to the mask as they always read zero/
    */
-  private static void setPasswordProtectedMaskedValue(final IntBuffer buffer, final int index, final int mask,
+  private static void setPasswordProtectedMaskedValue(final RegisterBank bank, final int index, final int mask,
       final int value) {
-    setMaskedValue(buffer, index, mask, CLOCK_MANAGER_PASSWORD | value);
+    bank.setMaskedValue(index, mask, CLOCK_MANAGER_PASSWORD | value);
+  }
+
+  /*
+   * The key a cached solution is stored under.
+   */
+  private static class SolutionKey {
+
+    final double frequency;
+    final JitterPolicy policy;
+
+    SolutionKey(double frequency, JitterPolicy policy) {
+      this.frequency = frequency;
+      this.policy = policy;
+    }
+
+    @Override
+    public int hashCode() {
+      return Double.valueOf(frequency).hashCode() * 31 + policy.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SolutionKey)) {
+        return false;
+      }
+      final SolutionKey other = (SolutionKey) obj;
+      return Double.compare(frequency, other.frequency) == 0 && policy == other.policy;
+    }
+
   }
 
 }
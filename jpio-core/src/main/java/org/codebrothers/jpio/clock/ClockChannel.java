@@ -1,5 +1,7 @@
 package org.codebrothers.jpio.clock;
 
+import org.codebrothers.jpio.JPIOContext;
+
 /**
  * The three General Purpose Clock channels.
  * <p>
@@ -110,5 +112,31 @@ public enum ClockChannel {
   public void configureDivisor(float divisor) {
     Clock.configureDivisor(this, divisor);
   }
+
+  /**
+   * Applies a complete config to the channel in a single pass and enables it.
+   * 
+   * @param config
+   *          The config to apply.
+   * 
+   * @return The time taken for the channel to go idle in nanoseconds.
+   */
+  public long apply(final ClockConfig config) {
+    return Clock.apply(this, config);
+  }
+
+  /**
+   * Applies a complete config to the channel on a board and enables it.
+   * 
+   * @param context
+   *          The board.
+   * @param config
+   *          The config to apply.
+   * 
+   * @return The time taken for the channel to go idle in nanoseconds.
+   */
+  public long apply(final JPIOContext context, final ClockConfig config) {
+    return Clock.apply(context, this, config);
+  }
   
 }
@@ -0,0 +1,117 @@
+package org.codebrothers.jpio.clock;
+
+import java.text.MessageFormat;
+
+/**
+ * A complete setting for a clock channel: its source, MASH setting and
+ * divisor.
+ * <p>
+ * The register values are worked out when the config is constructed, so
+ * {@link Clock#apply(ClockChannel, ClockConfig)} only has to write them.
+ * Configs are immutable and can be shared between channels.
+ */
+public final class ClockConfig {
+
+  /*
+   * 12 bit divisor component size.
+   */
+  private static final int DIVISOR_COMPONENT = 0xFFF;
+
+  /*
+   * Multiplies the divisor's fractional part to its 12 bit fixed point form.
+   */
+  private static final int DIVISOR_FRACTION_SCALER = DIVISOR_COMPONENT + 1;
+
+  /**
+   * The clock source.
+   */
+  public final ClockSource source;
+
+  /**
+   * The MASH setting.
+   */
+  public final ClockMash mash;
+
+  /**
+   * The divisor, as it will be written to the fixed point register.
+   */
+  public final float divisor;
+
+  /*
+   * The source and mash bits of the control register, without the password or
+   * enable bit.
+   */
+  final int controlValue;
+
+  /*
+   * The divisor register value, without the password.
+   */
+  final int divisorValue;
+
+  /**
+   * Constructs a config.
+   *
+   * @param source
+   *          The clock source.
+   * @param mash
+   *          The MASH setting.
+   * @param divisor
+   *          The divisor, rounded to the nearest 1/4096.
+   *
+   * @throws IllegalArgumentException
+   *           If the divisor is out of the range of the 12 bit integer/12 bit
+   *           fractional fixed point value.
+   */
+  public ClockConfig(ClockSource source, ClockMash mash, double divisor) {
+    this.source = source;
+    this.mash = mash;
+    this.divisorValue = toDivisorValue(divisor);
+    this.divisor = divisorValue / (float) DIVISOR_FRACTION_SCALER;
+    this.controlValue = source.value | mash.value;
+  }
+
+  /**
+   * The frequency this config produces, from the source's nominal frequency.
+   *
+   * @return The frequency in Hz.
+   */
+  public double getFrequency() {
+    return source.frequency * (double) DIVISOR_FRACTION_SCALER / divisorValue;
+  }
+
+  /*
+   * Converts a divisor to its 12 bit integer/12 bit fractional fixed point
+   * form, rounding to the nearest 1/4096.
+   */
+  static int toDivisorValue(double divisor) {
+    final long fixed = Math.round(divisor * DIVISOR_FRACTION_SCALER);
+    if (fixed < DIVISOR_FRACTION_SCALER || fixed > (DIVISOR_COMPONENT << 12 | DIVISOR_COMPONENT)) {
+      throw new IllegalArgumentException(MessageFormat.format(
+          "Divisor out of range. Received {0}, must be at least 1 and less than 4096.", divisor));
+    }
+    return (int) fixed;
+  }
+
+  @Override
+  public int hashCode() {
+    return (controlValue * 31) + divisorValue;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ClockConfig)) {
+      return false;
+    }
+    final ClockConfig other = (ClockConfig) obj;
+    return controlValue == other.controlValue && divisorValue == other.divisorValue;
+  }
+
+  @Override
+  public String toString() {
+    return "ClockConfig[" + source + ", " + mash + ", " + divisor + "]";
+  }
+
+}
@@ -16,22 +16,22 @@ public enum ClockMash {
   /**
    * Integer division
    */
-  INT(0),
+  INT(0, 1, 0),
 
   /**
    * 1-stage MASH (equivalent to non-MASH dividers)
    */
-  STAGE1(1),
+  STAGE1(1, 2, 1),
 
   /**
    * 2-stage MASH
    */
-  STAGE2(2),
+  STAGE2(2, 3, 3),
 
   /**
    * 3-stage MASH
    */
-  STAGE3(3);
+  STAGE3(3, 5, 7);
 
   /*
    * The mask for the mash value.
@@ -43,8 +43,21 @@ public enum ClockMash {
    */
   public final int value;
 
-  private ClockMash(final int value) {
+  /*
+   * The smallest integer part of the divisor the setting supports.
+   */
+  public final int minDivisor;
+
+  /*
+   * The most the length of a period can vary by, in source cycles, when the
+   * divisor has a fractional part.
+   */
+  public final int jitterCycles;
+
+  private ClockMash(final int value, final int minDivisor, final int jitterCycles) {
     this.value = value << 9;
+    this.minDivisor = minDivisor;
+    this.jitterCycles = jitterCycles;
   }
 
 }
@@ -0,0 +1,43 @@
+package org.codebrothers.jpio.clock;
+
+/**
+ * The result of solving for a target frequency: the config to apply, and the
+ * frequency and jitter it will give.
+ */
+public final class ClockSolution {
+
+  /**
+   * The config producing the frequency.
+   */
+  public final ClockConfig config;
+
+  /**
+   * The average frequency produced, in Hz.
+   */
+  public final double frequency;
+
+  /**
+   * The largest difference between the shortest and longest period produced,
+   * in seconds. 0 for integer division.
+   */
+  public final double worstCaseJitter;
+
+  /**
+   * The difference between the produced and requested frequency, as a
+   * fraction of the requested frequency.
+   */
+  public final double error;
+
+  ClockSolution(ClockConfig config, double frequency, double worstCaseJitter, double target) {
+    this.config = config;
+    this.frequency = frequency;
+    this.worstCaseJitter = worstCaseJitter;
+    this.error = Math.abs(frequency - target) / target;
+  }
+
+  @Override
+  public String toString() {
+    return "ClockSolution[" + config + ", " + frequency + "Hz, " + worstCaseJitter + "s jitter]";
+  }
+
+}
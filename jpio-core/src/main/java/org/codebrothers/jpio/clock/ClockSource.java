@@ -10,42 +10,42 @@ public enum ClockSource {
   /**
    * Ground (no oscillator).
    */
-  GND,
+  GND(0),
 
   /**
    * The on board crystal oscillator. Runs at a frequency of 19.2Mhz.
    */
-  OSCILLATOR,
+  OSCILLATOR(19200000),
 
   /**
    * Test (debug 0)
    */
-  TEST0,
+  TEST0(0),
 
   /**
    * Test (debug 1)
    */
-  TEST1,
+  TEST1(0),
 
   /**
-   * PLLA
+   * PLLA, not normally running.
    */
-  PLLA,
+  PLLA(0),
 
   /**
-   * PLLC
+   * PLLC, runs at 1000Mhz but changes with overclock settings.
    */
-  PLLC,
+  PLLC(1000000000),
 
   /**
-   * PLLD
+   * PLLD, runs at 500Mhz.
    */
-  PLLD,
+  PLLD(500000000),
 
   /**
-   * HDMI auxiliary
+   * HDMI auxiliary, runs at 216Mhz.
    */
-  HDMI;
+  HDMI(216000000);
 
   /*
    * The first 4 bits in the control register assign the clock's source.
@@ -57,8 +57,14 @@ public enum ClockSource {
    */
   public final int value;
 
-  private ClockSource() {
+  /*
+   * The nominal frequency of the source in Hz, 0 if it is not usable.
+   */
+  public final int frequency;
+
+  private ClockSource(final int frequency) {
     this.value = ordinal();
+    this.frequency = frequency;
   }
 
 }
@@ -0,0 +1,48 @@
+package org.codebrothers.jpio.clock;
+
+/**
+ * How much jitter {@link Clock#synthesize(ClockChannel, double, JitterPolicy)}
+ * may trade for frequency accuracy.
+ * <p>
+ * Integer division gives a clean clock but only frequencies of source/n. The
+ * MASH stages reach frequencies between these by varying the length of each
+ * period, the more stages the larger the variation but the higher the
+ * frequency its noise is pushed to.
+ * <p>
+ * A policy allows stages rather than requiring them. Every stage gives the same
+ * average frequency for a fractional divisor, so when solutions tie the one
+ * with the least jitter is chosen, which is always 1-stage MASH. The higher
+ * stages are only picked when a caller configures them directly.
+ */
+public enum JitterPolicy {
+
+  /**
+   * Integer division only, every period is the same length.
+   */
+  NONE(ClockMash.INT),
+
+  /**
+   * Up to 1-stage MASH, periods vary by one source cycle.
+   */
+  LOW(ClockMash.STAGE1),
+
+  /**
+   * Up to 2-stage MASH, periods vary by up to three source cycles.
+   */
+  MEDIUM(ClockMash.STAGE2),
+
+  /**
+   * Up to 3-stage MASH, periods vary by up to seven source cycles.
+   */
+  ANY(ClockMash.STAGE3);
+
+  /**
+   * The highest MASH setting the policy allows.
+   */
+  public final ClockMash maxMash;
+
+  private JitterPolicy(final ClockMash maxMash) {
+    this.maxMash = maxMash;
+  }
+
+}
@@ -1,9 +1,11 @@
 package org.codebrothers.jpio.gpio;
 
-import static org.codebrothers.jpio.JPIO.GPIO;
 import static org.codebrothers.jpio.util.DelayUtil.delayNs;
 
-import static org.codebrothers.jpio.util.BitUtils.*;
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.pin.DigitalPin;
+import org.codebrothers.jpio.register.RegisterBank;
 
 public class GPIO {
 
@@ -15,8 +17,24 @@ public class GPIO {
    * @param function
    *          The new function for the pin.
    */
-  public static synchronized void setPinFunction(final GPIOPin pin, final Function function) {
-    setMaskedValue(GPIO, pin.functionRegister, pin.functionMask, function.values[pin.functionOrdinal]);
+  public static void setPinFunction(final GPIOPin pin, final Function function) {
+    setPinFunction(JPIO.context(), pin, function);
+  }
+
+  /**
+   * Sets a pin's function on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param pin
+   *          The pin for which to set the function.
+   * @param function
+   *          The new function for the pin.
+   */
+  public static void setPinFunction(final JPIOContext context, final GPIOPin pin, final Function function) {
+    synchronized (context.lock()) {
+      context.gpio().setMaskedValue(pin.functionRegister, pin.functionMask, function.values[pin.functionOrdinal]);
+    }
   }
 
   /**
@@ -27,8 +45,24 @@ public class GPIO {
    * @param value
    *          The new value for the pin.
    */
-  public static synchronized void setPinValue(final GPIOPin pin, final boolean value) {
-    GPIO.put(value ? pin.setRegister : pin.clearRegister, pin.pinValue);
+  public static void setPinValue(final GPIOPin pin, final boolean value) {
+    setPinValue(JPIO.context(), pin, value);
+  }
+
+  /**
+   * Sets or clears a pin's value on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param pin
+   *          The pin for which to set the value.
+   * @param value
+   *          The new value for the pin.
+   */
+  public static void setPinValue(final JPIOContext context, final GPIOPin pin, final boolean value) {
+    synchronized (context.lock()) {
+      context.gpio().putOrdered(value ? pin.setRegister : pin.clearRegister, pin.pinValue);
+    }
   }
 
   /**
@@ -38,8 +72,23 @@ public class GPIO {
    *          The pin for which to get the value.
    * @return The value of the pin.
    */
-  public static synchronized boolean getPinValue(final GPIOPin pin) {
-    return isBitSet(GPIO, pin.levelRegister, pin.pinValue);
+  public static boolean getPinValue(final GPIOPin pin) {
+    return getPinValue(JPIO.context(), pin);
+  }
+
+  /**
+   * Gets a pin's value on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param pin
+   *          The pin for which to get the value.
+   * @return The value of the pin.
+   */
+  public static boolean getPinValue(final JPIOContext context, final GPIOPin pin) {
+    synchronized (context.lock()) {
+      return context.gpio().isBitSet(pin.levelRegister, pin.pinValue);
+    }
   }
 
   /**
@@ -50,25 +99,64 @@ public class GPIO {
    * @param resistor
    *          The internal resistor mode to set for the pin.
    */
-  public static synchronized void setPinResistor(final GPIOPin pin, final Resistor resistor) {
-    // See page 101 in the datasheet for details on how this is implemented.
-    //
-    // 250mhz is the speed of the peripheral bus clock, and the datasheet says
-    // to sleep for 150 ticks. So we'll need to sleep for at least:
-    //
-    // 1x10&#x2079/(2.5x10&#x2078/150) = 600ns (1000ns will do!)
-    //
-    // set new up/down value
-    GPIO.put(Resistor.VALUE_REGISTER, resistor.value);
-    // provide the required set-up time for the control signal
-    delayNs(1000);
-    // to clock the control signal into the GPIO pads
-    GPIO.put(pin.pullUpDownClockRegister, pin.pinValue);
-    // required hold time for the control signal
-    delayNs(1000);
-    // take our values out of the registers
-    GPIO.put(Resistor.VALUE_REGISTER, 0x00);
-    GPIO.put(pin.pullUpDownClockRegister, 0x00);
+  public static void setPinResistor(final GPIOPin pin, final Resistor resistor) {
+    setPinResistor(JPIO.context(), pin, resistor);
+  }
+
+  /**
+   * Sets a pin's internal resistor on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param pin
+   *          The pin for which to set the internal resistor mode.
+   * @param resistor
+   *          The internal resistor mode to set for the pin.
+   */
+  public static void setPinResistor(final JPIOContext context, final GPIOPin pin, final Resistor resistor) {
+    synchronized (context.lock()) {
+      final RegisterBank gpio = context.gpio();
+      // See page 101 in the datasheet for details on how this is implemented.
+      //
+      // 250mhz is the speed of the peripheral bus clock, and the datasheet says
+      // to sleep for 150 ticks. So we'll need to sleep for at least:
+      //
+      // 1x10&#x2079/(2.5x10&#x2078/150) = 600ns (1000ns will do!)
+      //
+      // set new up/down value
+      gpio.putOrdered(Resistor.VALUE_REGISTER, resistor.value);
+      // provide the required set-up time for the control signal, the barrier
+      // makes sure the write has happened before timing starts
+      gpio.fence();
+      delayNs(1000);
+      // to clock the control signal into the GPIO pads
+      gpio.putOrdered(pin.pullUpDownClockRegister, pin.pinValue);
+      // required hold time for the control signal
+      gpio.fence();
+      delayNs(1000);
+      // take our values out of the registers
+      gpio.putOrdered(Resistor.VALUE_REGISTER, 0x00);
+      gpio.putOrdered(pin.pullUpDownClockRegister, 0x00);
+    }
+  }
+
+  /**
+   * Finds the GPIO pin behind a digital pin, allowing drivers to write its
+   * registers directly.
+   * 
+   * @param pin
+   *          The digital pin.
+   * 
+   * @return The GPIO pin, or null if the pin isn't a GPIOPin or PiPin.
+   */
+  public static GPIOPin getGPIOPin(final DigitalPin pin) {
+    if (pin instanceof GPIOPin) {
+      return (GPIOPin) pin;
+    }
+    if (pin instanceof PiPin) {
+      return ((PiPin) pin).pin;
+    }
+    return null;
   }
 
 }
@@ -1,5 +1,6 @@
 package org.codebrothers.jpio.gpio;
 
+import org.codebrothers.jpio.JPIOContext;
 import org.codebrothers.jpio.pin.DigitalPin;
 
 /**
@@ -113,6 +114,30 @@ public enum GPIOPin implements DigitalPin {
     GPIO.setPinValue(this, value);
   }
 
+  /**
+   * Gets the pin's value on a board.
+   * 
+   * @param context
+   *          The board.
+   * 
+   * @return The value of the pin.
+   */
+  public boolean getValue(JPIOContext context) {
+    return GPIO.getPinValue(context, this);
+  }
+
+  /**
+   * Sets or clears the pin's value on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param value
+   *          The new value for the pin.
+   */
+  public void setValue(JPIOContext context, boolean value) {
+    GPIO.setPinValue(context, this, value);
+  }
+
   /**
    * Sets the pins internal resistor to one of the three {@link Resistor}
    * states.
@@ -124,6 +149,18 @@ public enum GPIOPin implements DigitalPin {
     GPIO.setPinResistor(this, resistor);
   }
 
+  /**
+   * Sets the pins internal resistor on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param resistor
+   *          The internal resistor mode to set for the pin.
+   */
+  public void setPinResistor(JPIOContext context, Resistor resistor) {
+    GPIO.setPinResistor(context, this, resistor);
+  }
+
   /**
    * Sets the pins function to one of the {@link Function} types.
    * 
@@ -134,4 +171,16 @@ public enum GPIOPin implements DigitalPin {
     GPIO.setPinFunction(this, function);
   }
 
+  /**
+   * Sets the pins function on a board.
+   * 
+   * @param context
+   *          The board.
+   * @param function
+   *          The new function for the pin.
+   */
+  public void setFunction(JPIOContext context, Function function) {
+    GPIO.setPinFunction(context, this, function);
+  }
+
 }
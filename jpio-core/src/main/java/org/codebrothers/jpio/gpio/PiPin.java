@@ -95,7 +95,7 @@ public enum PiPin implements DigitalPin {
    */
   PIN26(GPIOPin.PIN7);
 
-  private final GPIOPin pin;
+  final GPIOPin pin;
 
   private PiPin(final GPIOPin pin) {
     this.pin = pin;
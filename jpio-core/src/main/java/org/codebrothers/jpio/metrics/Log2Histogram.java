@@ -0,0 +1,124 @@
+package org.codebrothers.jpio.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values with a bucket per power of two, so
+ * recording is a bit count and an atomic add. Bucket 0 holds zeros and bucket
+ * n holds values from 2^(n-1) to 2^n - 1.
+ */
+public final class Log2Histogram {
+
+  /**
+   * The number of buckets.
+   */
+  public static final int BUCKETS = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  private final StripedCounter sum = new StripedCounter();
+
+  /**
+   * Records a value, negative values are recorded as zero.
+   *
+   * @param value
+   *          The value to record.
+   */
+  public void record(final long value) {
+    final long recorded = Math.max(value, 0);
+    buckets.getAndIncrement(bucket(recorded));
+    sum.add(recorded);
+  }
+
+  /**
+   * The number of values recorded.
+   *
+   * @return The count.
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += buckets.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * The sum of the values recorded.
+   *
+   * @return The sum.
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * The mean of the values recorded.
+   *
+   * @return The mean, 0 if nothing has been recorded.
+   */
+  public double getMean() {
+    final long count = getCount();
+    return count == 0 ? 0 : (double) getSum() / count;
+  }
+
+  /**
+   * Estimates a percentile as the upper bound of the bucket it falls in.
+   *
+   * @param percentile
+   *          The percentile, from 0 to 100.
+   *
+   * @return The upper bound, 0 if nothing has been recorded.
+   */
+  public long getPercentile(double percentile) {
+    final long[] counts = getBuckets();
+    long count = 0;
+    for (long bucket : counts) {
+      count += bucket;
+    }
+    final long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && seen > 0) {
+        return upperBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * A copy of the bucket counts.
+   *
+   * @return The counts, indexed by bucket.
+   */
+  public long[] getBuckets() {
+    final long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * Resets every bucket and the sum to zero.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    sum.reset();
+  }
+
+  /*
+   * Non-negative longs have at most 63 significant bits, so always fit.
+   */
+  private static int bucket(final long value) {
+    return 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  private static long upperBound(final int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+}
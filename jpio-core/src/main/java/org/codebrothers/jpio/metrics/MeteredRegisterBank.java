@@ -0,0 +1,96 @@
+package org.codebrothers.jpio.metrics;
+
+import org.codebrothers.jpio.register.RegisterBank;
+
+/**
+ * Wraps a bank, counting its reads, writes and barriers. The read-modify-write
+ * operations count as one of each.
+ */
+public class MeteredRegisterBank implements RegisterBank {
+
+  private final RegisterBank bank;
+
+  private final RegisterMetrics metrics;
+
+  /**
+   * Constructs a metered bank.
+   *
+   * @param bank
+   *          The bank to meter.
+   * @param metrics
+   *          The metrics to count into.
+   */
+  public MeteredRegisterBank(RegisterBank bank, RegisterMetrics metrics) {
+    this.bank = bank;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public int size() {
+    return bank.size();
+  }
+
+  @Override
+  public int get(final int index) {
+    metrics.reads.increment();
+    return bank.get(index);
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    metrics.writes.increment();
+    bank.put(index, value);
+  }
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    metrics.writes.increment();
+    bank.putOrdered(index, value);
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    metrics.writes.increment();
+    bank.putRelease(index, value);
+  }
+
+  @Override
+  public void fence() {
+    metrics.fences.increment();
+    bank.fence();
+  }
+
+  @Override
+  public void setBits(final int index, final int value) {
+    metrics.reads.increment();
+    metrics.writes.increment();
+    bank.setBits(index, value);
+  }
+
+  @Override
+  public void clearMask(final int index, final int mask) {
+    metrics.reads.increment();
+    metrics.writes.increment();
+    bank.clearMask(index, mask);
+  }
+
+  @Override
+  public void setMaskedValue(final int index, final int mask, final int value) {
+    metrics.reads.increment();
+    metrics.writes.increment();
+    bank.setMaskedValue(index, mask, value);
+  }
+
+  @Override
+  public boolean isBitSet(final int index, final int bit) {
+    metrics.reads.increment();
+    return bank.isBitSet(index, bit);
+  }
+
+  @Override
+  public boolean isBitClear(final int index, final int bit) {
+    metrics.reads.increment();
+    return bank.isBitClear(index, bit);
+  }
+
+}
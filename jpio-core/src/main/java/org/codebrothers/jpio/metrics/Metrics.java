@@ -0,0 +1,127 @@
+package org.codebrothers.jpio.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.trace.Peripheral;
+
+/**
+ * The metrics kept by the drivers, enabled by setting the system property
+ * {@value #METRICS_PROPERTY} to true.
+ * <p>
+ * Whilst disabled the drivers skip every metric behind a check of
+ * {@link #ENABLED}, a constant the JIT folds away, so metrics cost nothing.
+ * Once enabled the metrics are registered with the platform MBean server
+ * under the org.codebrothers.jpio domain:
+ * 
+ * <pre>
+ * org.codebrothers.jpio:type=Registers,peripheral=GPIO (and CLOCK, PWM, SPI0)
+ * org.codebrothers.jpio:type=Spins,name=SPI (and Clock, DelayUtil)
+ * org.codebrothers.jpio:type=Ports
+ * </pre>
+ */
+public final class Metrics {
+
+  /**
+   * The system property which, set to true, enables metrics.
+   */
+  public static final String METRICS_PROPERTY = "jpio.metrics";
+
+  /**
+   * Whether metrics are being kept.
+   */
+  public static final boolean ENABLED = Boolean.getBoolean(METRICS_PROPERTY);
+
+  /**
+   * The waits for the SPI FIFOs and transfers to complete.
+   */
+  public static final SpinMetrics SPI = new SpinMetrics();
+
+  /**
+   * The waits for clock channels to go idle.
+   */
+  public static final SpinMetrics CLOCK = new SpinMetrics();
+
+  /**
+   * The spinning delays of DelayUtil.
+   */
+  public static final SpinMetrics DELAY = new SpinMetrics();
+
+  /**
+   * The flushes and changes of every port.
+   */
+  public static final PortMetrics PORTS = new PortMetrics();
+
+  private static final RegisterMetrics[] REGISTERS = new RegisterMetrics[Peripheral.values().length];
+
+  private static final String DOMAIN = "org.codebrothers.jpio";
+
+  static {
+    for (Peripheral peripheral : Peripheral.values()) {
+      REGISTERS[peripheral.ordinal()] = new RegisterMetrics();
+    }
+    if (ENABLED) {
+      register();
+    }
+  }
+
+  private Metrics() {
+    // cannot be constructed
+  }
+
+  /**
+   * The register access counts of a peripheral.
+   * 
+   * @param peripheral
+   *          The peripheral.
+   * 
+   * @return The counts.
+   */
+  public static RegisterMetrics registers(Peripheral peripheral) {
+    return REGISTERS[peripheral.ordinal()];
+  }
+
+  /**
+   * Wraps a bank so its accesses are counted, if metrics are enabled.
+   * 
+   * @param bank
+   *          The bank, may be null.
+   * @param peripheral
+   *          The peripheral the bank holds.
+   * 
+   * @return A metered bank, or the bank itself if metrics are disabled.
+   */
+  public static RegisterBank meter(RegisterBank bank, Peripheral peripheral) {
+    if (!ENABLED || bank == null) {
+      return bank;
+    }
+    return new MeteredRegisterBank(bank, registers(peripheral));
+  }
+
+  /*
+   * Registers the MBeans, metrics are still kept if they can't be.
+   */
+  private static void register() {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      for (Peripheral peripheral : Peripheral.values()) {
+        server.registerMBean(registers(peripheral),
+            new ObjectName(DOMAIN + ":type=Registers,peripheral=" + peripheral.name()));
+      }
+      server.registerMBean(SPI, new ObjectName(DOMAIN + ":type=Spins,name=SPI"));
+      server.registerMBean(CLOCK, new ObjectName(DOMAIN + ":type=Spins,name=Clock"));
+      server.registerMBean(DELAY, new ObjectName(DOMAIN + ":type=Spins,name=DelayUtil"));
+      server.registerMBean(PORTS, new ObjectName(DOMAIN + ":type=Ports"));
+    } catch (JMException e) {
+      Logger.getLogger(Metrics.class.getName()).log(Level.WARNING,
+          "Unable to register the JPIO MBeans, metrics are still kept but can't be read over JMX.", e);
+    }
+  }
+
+}
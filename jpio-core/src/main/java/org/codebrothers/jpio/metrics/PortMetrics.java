@@ -0,0 +1,81 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Counts the flushes of every port, how long they took, and how many pin
+ * writes were applied or coalesced.
+ */
+public final class PortMetrics implements PortMetricsMBean {
+
+  private final Log2Histogram flushNanos = new Log2Histogram();
+
+  private final StripedCounter changes = new StripedCounter();
+
+  private final StripedCounter coalesced = new StripedCounter();
+
+  /**
+   * Records a flush.
+   *
+   * @param nanos
+   *          The time the flush took.
+   */
+  public void flushed(long nanos) {
+    flushNanos.record(nanos);
+  }
+
+  /**
+   * Records a pin change applied to a port.
+   */
+  public void changed() {
+    changes.increment();
+  }
+
+  /**
+   * Records a pin write which never needed to reach the hardware.
+   */
+  public void coalesced() {
+    coalesced.increment();
+  }
+
+  @Override
+  public long getFlushes() {
+    return flushNanos.getCount();
+  }
+
+  @Override
+  public double getMeanFlushNanos() {
+    return flushNanos.getMean();
+  }
+
+  @Override
+  public long getMedianFlushNanos() {
+    return flushNanos.getPercentile(50);
+  }
+
+  @Override
+  public long get99thPercentileFlushNanos() {
+    return flushNanos.getPercentile(99);
+  }
+
+  @Override
+  public long[] getFlushHistogram() {
+    return flushNanos.getBuckets();
+  }
+
+  @Override
+  public long getChanges() {
+    return changes.sum();
+  }
+
+  @Override
+  public long getCoalescedChanges() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public void reset() {
+    flushNanos.reset();
+    changes.reset();
+    coalesced.reset();
+  }
+
+}
@@ -0,0 +1,51 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Management interface of {@link PortMetrics}.
+ */
+public interface PortMetricsMBean {
+
+  /**
+   * @return The number of times ports have flushed changes to hardware.
+   */
+  long getFlushes();
+
+  /**
+   * @return The mean time of a flush in nanoseconds.
+   */
+  double getMeanFlushNanos();
+
+  /**
+   * @return The median time of a flush in nanoseconds, to the next power of
+   *         two.
+   */
+  long getMedianFlushNanos();
+
+  /**
+   * @return The 99th percentile time of a flush in nanoseconds, to the next
+   *         power of two.
+   */
+  long get99thPercentileFlushNanos();
+
+  /**
+   * @return The number of flushes, by log2 of their time in nanoseconds.
+   */
+  long[] getFlushHistogram();
+
+  /**
+   * @return The number of pin changes applied to ports.
+   */
+  long getChanges();
+
+  /**
+   * @return The number of pin writes absorbed by an atomic operation, either
+   *         overwritten before it completed or leaving the pin unchanged.
+   */
+  long getCoalescedChanges();
+
+  /**
+   * Resets every count to zero.
+   */
+  void reset();
+
+}
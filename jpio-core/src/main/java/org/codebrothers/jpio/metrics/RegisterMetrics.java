@@ -0,0 +1,37 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Counts the accesses made to a peripheral's registers, through a
+ * {@link MeteredRegisterBank}.
+ */
+public final class RegisterMetrics implements RegisterMetricsMBean {
+
+  final StripedCounter reads = new StripedCounter();
+
+  final StripedCounter writes = new StripedCounter();
+
+  final StripedCounter fences = new StripedCounter();
+
+  @Override
+  public long getReads() {
+    return reads.sum();
+  }
+
+  @Override
+  public long getWrites() {
+    return writes.sum();
+  }
+
+  @Override
+  public long getFences() {
+    return fences.sum();
+  }
+
+  @Override
+  public void reset() {
+    reads.reset();
+    writes.reset();
+    fences.reset();
+  }
+
+}
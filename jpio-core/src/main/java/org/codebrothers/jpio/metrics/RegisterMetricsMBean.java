@@ -0,0 +1,28 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Management interface of {@link RegisterMetrics}.
+ */
+public interface RegisterMetricsMBean {
+
+  /**
+   * @return The number of register reads.
+   */
+  long getReads();
+
+  /**
+   * @return The number of register writes.
+   */
+  long getWrites();
+
+  /**
+   * @return The number of barriers.
+   */
+  long getFences();
+
+  /**
+   * Resets every count to zero.
+   */
+  void reset();
+
+}
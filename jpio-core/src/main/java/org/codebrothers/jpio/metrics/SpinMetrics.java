@@ -0,0 +1,56 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Counts the busy waits of a driver and how many loop iterations each one
+ * spun for.
+ */
+public final class SpinMetrics implements SpinMetricsMBean {
+
+  private final Log2Histogram spins = new Log2Histogram();
+
+  /**
+   * Records a completed wait.
+   *
+   * @param iterations
+   *          The number of times the wait looped.
+   */
+  public void record(long iterations) {
+    spins.record(iterations);
+  }
+
+  @Override
+  public long getWaits() {
+    return spins.getCount();
+  }
+
+  @Override
+  public long getSpins() {
+    return spins.getSum();
+  }
+
+  @Override
+  public double getMeanSpins() {
+    return spins.getMean();
+  }
+
+  @Override
+  public long getMedianSpins() {
+    return spins.getPercentile(50);
+  }
+
+  @Override
+  public long get99thPercentileSpins() {
+    return spins.getPercentile(99);
+  }
+
+  @Override
+  public long[] getSpinHistogram() {
+    return spins.getBuckets();
+  }
+
+  @Override
+  public void reset() {
+    spins.reset();
+  }
+
+}
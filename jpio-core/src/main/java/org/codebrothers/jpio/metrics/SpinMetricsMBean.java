@@ -0,0 +1,44 @@
+package org.codebrothers.jpio.metrics;
+
+/**
+ * Management interface of {@link SpinMetrics}.
+ */
+public interface SpinMetricsMBean {
+
+  /**
+   * @return The number of waits.
+   */
+  long getWaits();
+
+  /**
+   * @return The total number of loop iterations spent waiting.
+   */
+  long getSpins();
+
+  /**
+   * @return The mean number of iterations per wait.
+   */
+  double getMeanSpins();
+
+  /**
+   * @return The median iterations per wait, to the next power of two.
+   */
+  long getMedianSpins();
+
+  /**
+   * @return The 99th percentile of iterations per wait, to the next power of
+   *         two.
+   */
+  long get99thPercentileSpins();
+
+  /**
+   * @return The number of waits, by log2 of their iterations.
+   */
+  long[] getSpinHistogram();
+
+  /**
+   * Resets every count to zero.
+   */
+  void reset();
+
+}
@@ -0,0 +1,75 @@
+package org.codebrothers.jpio.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which spreads its updates over several cells, so threads counting
+ * at the same time rarely contend on the same cache line. Reads sum the cells
+ * and may miss updates made whilst summing.
+ * <p>
+ * Serves the purpose of Java 8's LongAdder, with each thread picking its cell
+ * by its id rather than probing.
+ */
+public final class StripedCounter {
+
+  /*
+   * The longs between cells, keeping each cell on its own 64 byte line.
+   */
+  private static final int PADDING = 8;
+
+  private static final int STRIPES = stripes();
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  /**
+   * Adds one to the count.
+   */
+  public void increment() {
+    add(1);
+  }
+
+  /**
+   * Adds to the count.
+   *
+   * @param value
+   *          The amount to add.
+   */
+  public void add(final long value) {
+    cells.getAndAdd(cell(), value);
+  }
+
+  /**
+   * Sums the count.
+   *
+   * @return The count.
+   */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+
+  /**
+   * Resets the count to zero.
+   */
+  public void reset() {
+    for (int i = 0; i < STRIPES; i++) {
+      cells.set(i * PADDING, 0);
+    }
+  }
+
+  private static int cell() {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+  }
+
+  /*
+   * A power of two of at least the number of processors, up to 64.
+   */
+  private static int stripes() {
+    final int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+    return Integer.highestOneBit(processors * 2 - 1);
+  }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Low overhead counters and histograms for the drivers, published as MBeans
+ * under the org.codebrothers.jpio domain.
+ */
+package org.codebrothers.jpio.metrics;
@@ -6,6 +6,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.codebrothers.jpio.metrics.Metrics;
 import org.codebrothers.jpio.pin.BytePin;
 import org.codebrothers.jpio.pin.DigitalPin;
 import org.codebrothers.jpio.pin.Pin;
@@ -155,10 +156,17 @@ public abstract class Port<T, P extends Pin<T>> implements Iterable<P> {
    */
   public synchronized void setPinValue(int pin, T value) {
     if (lock.isLocked()) {
+      if (Metrics.ENABLED && outputBuffer[pin] != null) {
+        // the earlier write never reaches the hardware
+        Metrics.PORTS.coalesced();
+      }
       outputBuffer[pin] = value;
     } else {
-      applyChange(pin, value);
-      flushChanges();
+      final boolean changed = applyChange(pin, value);
+      if (Metrics.ENABLED) {
+        count(changed);
+      }
+      flush();
     }
   }
 
@@ -215,12 +223,41 @@ public abstract class Port<T, P extends Pin<T>> implements Iterable<P> {
   private void applyChanges(T[] outputBuffer) {
     boolean changes = false;
     for (int i = 0; i < outputBuffer.length; i++) {
-      if (outputBuffer[i] != null && applyChange(i, outputBuffer[i])) {
-        changes = true;
+      if (outputBuffer[i] != null) {
+        final boolean changed = applyChange(i, outputBuffer[i]);
+        changes |= changed;
+        if (Metrics.ENABLED) {
+          count(changed);
+        }
       }
     }
     // write changes to the hardware, some port types write out in batches!
     if (changes) {
+      flush();
+    }
+  }
+
+  /*
+   * Counts an applied write as a change, or as coalesced if the pin already
+   * held the value.
+   */
+  private static void count(boolean changed) {
+    if (changed) {
+      Metrics.PORTS.changed();
+    } else {
+      Metrics.PORTS.coalesced();
+    }
+  }
+
+  /*
+   * Flushes the changes, timing the flush if metrics are enabled.
+   */
+  private void flush() {
+    if (Metrics.ENABLED) {
+      final long start = System.nanoTime();
+      flushChanges();
+      Metrics.PORTS.flushed(System.nanoTime() - start);
+    } else {
       flushChanges();
     }
   }
@@ -1,7 +1,11 @@
 package org.codebrothers.jpio.port.shift595;
 
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.GPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
 import org.codebrothers.jpio.pin.DigitalPin;
 import org.codebrothers.jpio.port.DigitalPort;
+import org.codebrothers.jpio.register.WriteBatch;
 
 /**
  * A port for bit banging a single or daisy chained 74HC595 via 3 or 4
@@ -19,6 +23,16 @@ public class Shift595 extends DigitalPort {
   private final DigitalPin clear;
   private final Boolean[] values;
 
+  // the GPIO pins behind the digital pins, null unless they all have one
+  private final GPIOPin dataPin;
+  private final GPIOPin clockPin;
+  private final GPIOPin latchPin;
+  private final GPIOPin clearPin;
+
+  // the values packed 32 to an int for JPIO.shiftOut, null unless the pins are
+  // all in the first GPIO bank
+  private final int[] packed;
+
   /**
    * Constructs the Shift595 port using the provided digital pins for bit
    * banging.
@@ -63,6 +77,16 @@ public class Shift595 extends DigitalPort {
     this.values = new Boolean[bits];
     for (int i = 0; i < bits; i++)
       this.values[i] = false;
+    // the GPIO registers can be written directly if every pin is on the GPIO
+    final boolean direct = GPIO.getGPIOPin(data) != null && GPIO.getGPIOPin(clock) != null
+        && GPIO.getGPIOPin(latch) != null && (clear == null || GPIO.getGPIOPin(clear) != null);
+    this.dataPin = direct ? GPIO.getGPIOPin(data) : null;
+    this.clockPin = direct ? GPIO.getGPIOPin(clock) : null;
+    this.latchPin = direct ? GPIO.getGPIOPin(latch) : null;
+    this.clearPin = direct && clear != null ? GPIO.getGPIOPin(clear) : null;
+    final boolean firstBank = direct && dataPin.pinOrdinal == 0 && clockPin.pinOrdinal == 0
+        && latchPin.pinOrdinal == 0;
+    this.packed = firstBank ? new int[(bits + 31) / 32] : null;
   }
 
   /**
@@ -81,6 +105,13 @@ public class Shift595 extends DigitalPort {
   public boolean applyChange(int pin, Boolean value) {
     if (!values[pin].equals(value)) {
       values[pin] = value;
+      if (packed != null) {
+        if (value) {
+          packed[pin >>> 5] |= 1 << pin;
+        } else {
+          packed[pin >>> 5] &= ~(1 << pin);
+        }
+      }
       return true;
     }
     return false;
@@ -92,6 +123,10 @@ public class Shift595 extends DigitalPort {
    */
   @Override
   protected void flushChanges() {
+    if (dataPin != null) {
+      flushGPIO();
+      return;
+    }
     // only clear if a clear pin has been given
     if (clear != null) {
       clear.setValue(false);
@@ -109,6 +144,35 @@ public class Shift595 extends DigitalPort {
     latch.setValue(true);
   }
 
+  /*
+   * Bit bangs the values by writing the GPIO set and clear registers directly.
+   * When the pins are all in the first bank the shifting is handed to
+   * JPIO.shiftOut, a single native call for the whole chain. Otherwise it is
+   * written as a single batch, each write ordered after the last so the edges
+   * keep their sequence, with one barrier at the end rather than one per write.
+   */
+  private void flushGPIO() {
+    try (WriteBatch batch = WriteBatch.begin(JPIO.GPIO)) {
+      if (clearPin != null) {
+        batch.put(clearPin.clearRegister, clearPin.pinValue);
+        batch.put(clearPin.setRegister, clearPin.pinValue);
+      }
+      if (packed == null) {
+        for (Boolean value : values) {
+          batch.put(value ? dataPin.setRegister : dataPin.clearRegister, dataPin.pinValue);
+          batch.put(clockPin.clearRegister, clockPin.pinValue);
+          batch.put(clockPin.setRegister, clockPin.pinValue);
+        }
+        batch.put(latchPin.clearRegister, latchPin.pinValue);
+        batch.put(latchPin.setRegister, latchPin.pinValue);
+      }
+    }
+    if (packed != null) {
+      // shifts and latches after the clear pulse's barrier
+      JPIO.shiftOut(packed, values.length, dataPin.pinValue, clockPin.pinValue, latchPin.pinValue);
+    }
+  }
+
   /**
    * Returns the value for the specified pin.
    * <p>
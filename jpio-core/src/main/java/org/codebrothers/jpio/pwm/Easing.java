@@ -0,0 +1,59 @@
+package org.codebrothers.jpio.pwm;
+
+/**
+ * Easing curves for {@link PWMAnimator} ramps, mapping the fraction of a ramp's
+ * duration which has elapsed to the fraction of its change in value.
+ */
+public enum Easing {
+
+  /**
+   * Constant rate of change.
+   */
+  LINEAR {
+    @Override
+    public float apply(float t) {
+      return t;
+    }
+  },
+
+  /**
+   * Starts slowly, accelerating towards the end.
+   */
+  EASE_IN {
+    @Override
+    public float apply(float t) {
+      return t * t;
+    }
+  },
+
+  /**
+   * Starts quickly, decelerating towards the end.
+   */
+  EASE_OUT {
+    @Override
+    public float apply(float t) {
+      return t * (2 - t);
+    }
+  },
+
+  /**
+   * Starts and ends slowly.
+   */
+  EASE_IN_OUT {
+    @Override
+    public float apply(float t) {
+      return t * t * (3 - 2 * t);
+    }
+  };
+
+  /**
+   * Applies the curve.
+   * 
+   * @param t
+   *          The fraction of the duration elapsed, between 0 and 1.
+   * 
+   * @return The fraction of the change in value, between 0 and 1.
+   */
+  public abstract float apply(float t);
+
+}
@@ -1,9 +1,7 @@
 package org.codebrothers.jpio.pwm;
 
-import static org.codebrothers.jpio.JPIO.PWM;
-import static org.codebrothers.jpio.util.BitUtils.clearMask;
-import static org.codebrothers.jpio.util.BitUtils.isBitSet;
-import static org.codebrothers.jpio.util.BitUtils.setBits;
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
 
 public class PWM {
 
@@ -17,31 +15,144 @@ public class PWM {
    */
   public static final int PWM_STATUS_REGISTER = 1;
 
+  /*
+   * Shared PWM FIFO Input Register
+   */
+  private static final int PWM_FIFO_REGISTER = 6;
+
   public static void setControlValue(PWMChannel channel, PWMControl control, boolean value) {
+    setControlValue(JPIO.context(), channel, control, value);
+  }
+
+  public static void setControlValue(JPIOContext context, PWMChannel channel, PWMControl control, boolean value) {
     if (value)
-      setControl(channel, control);
+      setControl(context, channel, control);
     else
-      clearControl(channel, control);
+      clearControl(context, channel, control);
   }
 
   public static void clearControl(PWMChannel channel, PWMControl control) {
-    clearMask(PWM, PWM_CONTROL_REGISTER, control.masks[channel.ordinal]);
+    clearControl(JPIO.context(), channel, control);
+  }
+
+  public static void clearControl(JPIOContext context, PWMChannel channel, PWMControl control) {
+    context.pwm().clearMask(PWM_CONTROL_REGISTER, control.masks[channel.ordinal]);
   }
 
   public static void setControl(PWMChannel channel, PWMControl control) {
-    setBits(PWM, PWM_CONTROL_REGISTER, control.values[channel.ordinal]);
+    setControl(JPIO.context(), channel, control);
+  }
+
+  public static void setControl(JPIOContext context, PWMChannel channel, PWMControl control) {
+    context.pwm().setBits(PWM_CONTROL_REGISTER, control.values[channel.ordinal]);
   }
 
   public static boolean getStatus(PWMChannel channel, PWMStatus pwmStatus) {
-    return isBitSet(PWM, PWM_STATUS_REGISTER, pwmStatus.value);
+    return getStatus(JPIO.context(), channel, pwmStatus);
+  }
+
+  public static boolean getStatus(JPIOContext context, PWMChannel channel, PWMStatus pwmStatus) {
+    return context.pwm().isBitSet(PWM_STATUS_REGISTER, pwmStatus.value);
   }
 
   public static void setRange(PWMChannel channel, int range) {
-    PWM.put(channel.rangeRegister, range);
+    setRange(JPIO.context(), channel, range);
+  }
+
+  public static void setRange(JPIOContext context, PWMChannel channel, int range) {
+    context.pwm().put(channel.rangeRegister, range);
   }
 
   public static void setData(PWMChannel channel, int data) {
-    PWM.put(channel.dataRegister, data);
+    setData(JPIO.context(), channel, data);
+  }
+
+  public static void setData(JPIOContext context, PWMChannel channel, int data) {
+    context.pwm().put(channel.dataRegister, data);
+  }
+
+  /**
+   * Reads the whole status register, so several {@link PWMStatus} flags can be
+   * tested with a single read.
+   * 
+   * @return The status register's value.
+   */
+  public static int getStatusRegister() {
+    return getStatusRegister(JPIO.context());
+  }
+
+  /**
+   * Reads the whole status register of a board.
+   * 
+   * @param context
+   *          The board.
+   * 
+   * @return The status register's value.
+   */
+  public static int getStatusRegister(JPIOContext context) {
+    return context.pwm().get(PWM_STATUS_REGISTER);
+  }
+
+  /**
+   * Clears one of the status flags which software must clear by writing 1.
+   * 
+   * @param pwmStatus
+   *          The status flag to clear.
+   */
+  public static void clearStatus(PWMStatus pwmStatus) {
+    clearStatus(JPIO.context(), pwmStatus);
+  }
+
+  /**
+   * Clears one of the status flags of a board.
+   * 
+   * @param context
+   *          The board.
+   * @param pwmStatus
+   *          The status flag to clear.
+   */
+  public static void clearStatus(JPIOContext context, PWMStatus pwmStatus) {
+    context.pwm().put(PWM_STATUS_REGISTER, pwmStatus.value);
+  }
+
+  /**
+   * Clears the FIFO, which is shared by both channels.
+   */
+  public static void clearFifo() {
+    clearFifo(JPIO.context());
+  }
+
+  /**
+   * Clears the FIFO of a board.
+   * 
+   * @param context
+   *          The board.
+   */
+  public static void clearFifo(JPIOContext context) {
+    context.pwm().setBits(PWM_CONTROL_REGISTER, PWMControl.CLEAR_FIFO.values[0]);
+  }
+
+  /**
+   * Writes a value to the FIFO, which is shared by both channels. When both
+   * channels use the FIFO its values are taken by each channel in turn.
+   * 
+   * @param data
+   *          The value to write.
+   */
+  public static void writeFifo(int data) {
+    writeFifo(JPIO.context(), data);
+  }
+
+  /**
+   * Writes a value to the FIFO of a board.
+   * 
+   * @param context
+   *          The board.
+   * @param data
+   *          The value to write.
+   */
+  public static void writeFifo(JPIOContext context, int data) {
+    context.pwm().putOrdered(PWM_FIFO_REGISTER, data);
   }
 
 }
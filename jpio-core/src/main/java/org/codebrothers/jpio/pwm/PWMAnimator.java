@@ -0,0 +1,306 @@
+package org.codebrothers.jpio.pwm;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs time based ramps on any number of {@link PWMTarget}s from a single
+ * scheduler thread.
+ * <p>
+ * A ramp moves a target's data value from a start to an end value over a
+ * duration, following an {@link Easing} curve. On each tick the scheduler
+ * advances every active ramp, only writing to targets whose value has changed.
+ * Ramps are held in a fixed size table, so ticking doesn't allocate.
+ * <p>
+ * Starting a ramp on a target which is already ramping replaces its ramp.
+ * Starting one on another target whilst the table is full is rejected. The
+ * scheduler parks whilst there are no ramps to run.
+ * <p>
+ * An exception thrown by a target ends its ramp and is passed to the scheduler
+ * thread's uncaught exception handler, the other ramps carry on.
+ */
+public class PWMAnimator {
+
+  private final Queue<Ramp> requests = new ConcurrentLinkedQueue<Ramp>();
+
+  private final Ramp[] ramps;
+
+  /*
+   * The targets holding a place in the table, with the number of requests and
+   * ramps holding it. Guarded by itself, so ramp() can reject a target there's
+   * no room for before queueing it.
+   */
+  private final Map<PWMTarget, Integer> holds = new IdentityHashMap<PWMTarget, Integer>();
+
+  private final long tickNs;
+
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  // number of ramps at the start of the table which are active
+  private int active;
+
+  // read by other threads, written by the scheduler
+  private volatile int activeCount;
+
+  /**
+   * Constructs the animator and starts its scheduler thread.
+   *
+   * @param tick
+   *          The interval between updates.
+   * @param unit
+   *          The unit of the interval.
+   * @param capacity
+   *          The maximum number of ramps which can run at once.
+   */
+  public PWMAnimator(long tick, TimeUnit unit, int capacity) {
+    this.tickNs = unit.toNanos(tick);
+    this.ramps = new Ramp[capacity];
+    this.thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        process();
+      }
+    }, "jpio-pwm-animator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Starts a ramp, replacing any ramp already running on the target.
+   *
+   * @param target
+   *          The target to ramp.
+   * @param from
+   *          The data value to start at.
+   * @param to
+   *          The data value to end at.
+   * @param duration
+   *          The duration of the ramp.
+   * @param unit
+   *          The unit of the duration.
+   * @param easing
+   *          The curve to follow.
+   *
+   * @throws IllegalStateException
+   *           If the target isn't ramping and the maximum number of ramps are
+   *           already running, or the animator has been shut down.
+   */
+  public void ramp(PWMTarget target, int from, int to, long duration, TimeUnit unit, Easing easing) {
+    final Ramp request = new Ramp(target, from, to, Math.max(1, unit.toNanos(duration)), easing);
+    synchronized (holds) {
+      final Integer count = holds.get(target);
+      if (count == null && holds.size() == ramps.length) {
+        throw new IllegalStateException("Animator is already running " + ramps.length + " ramps.");
+      }
+      holds.put(target, count == null ? 1 : count + 1);
+    }
+    try {
+      submit(request);
+    } catch (IllegalStateException e) {
+      release(target);
+      throw e;
+    }
+  }
+
+  /**
+   * Stops any ramp running on the target, leaving it at its current value.
+   *
+   * @param target
+   *          The target to stop ramping.
+   */
+  public void cancel(PWMTarget target) {
+    submit(new Ramp(target, 0, 0, 0, null));
+  }
+
+  /**
+   * The number of ramps running as of the last tick.
+   *
+   * @return The number of active ramps.
+   */
+  public int getActiveRamps() {
+    return activeCount;
+  }
+
+  /**
+   * Stops the scheduler thread, ramps are left at their current values.
+   */
+  public void shutdown() {
+    running = false;
+    LockSupport.unpark(thread);
+  }
+
+  /*
+   * Hands a request to the scheduler.
+   */
+  private void submit(Ramp request) {
+    if (!running) {
+      throw new IllegalStateException("Animator has been shut down.");
+    }
+    requests.offer(request);
+    LockSupport.unpark(thread);
+  }
+
+  /*
+   * The scheduler loop.
+   */
+  private void process() {
+    long nextTick = System.nanoTime();
+    while (running) {
+      final long now = System.nanoTime();
+      drainRequests(now);
+      tick(now);
+      activeCount = active;
+      if (active == 0) {
+        // nothing to do until woken by the next request
+        LockSupport.park(this);
+        nextTick = System.nanoTime();
+      } else {
+        nextTick += tickNs;
+        final long wait = nextTick - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(this, wait);
+        } else {
+          // fallen behind, don't try to catch up
+          nextTick = System.nanoTime();
+        }
+      }
+    }
+  }
+
+  /*
+   * Moves requests into the ramp table.
+   */
+  private void drainRequests(long now) {
+    Ramp request;
+    while ((request = requests.poll()) != null) {
+      final int existing = find(request.target);
+      if (existing >= 0) {
+        // cancelled or replaced
+        remove(existing);
+      }
+      if (request.easing != null) {
+        // ramp() held a place for it, so there's room
+        try {
+          request.start(now);
+          ramps[active++] = request;
+        } catch (RuntimeException e) {
+          release(request.target);
+          failed(e);
+        }
+      }
+    }
+  }
+
+  /*
+   * Advances each active ramp, removing those which have finished.
+   */
+  private void tick(long now) {
+    int i = 0;
+    while (i < active) {
+      boolean finished;
+      try {
+        finished = ramps[i].advance(now);
+      } catch (RuntimeException e) {
+        failed(e);
+        finished = true;
+      }
+      if (finished) {
+        remove(i);
+      } else {
+        i++;
+      }
+    }
+  }
+
+  private int find(PWMTarget target) {
+    for (int i = 0; i < active; i++) {
+      if (ramps[i].target == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * Removes a ramp by moving the last active ramp into its slot.
+   */
+  private void remove(int index) {
+    release(ramps[index].target);
+    ramps[index] = ramps[--active];
+    ramps[active] = null;
+  }
+
+  /*
+   * Gives up one hold on a target's place in the table.
+   */
+  private void release(PWMTarget target) {
+    synchronized (holds) {
+      final int count = holds.get(target);
+      if (count == 1) {
+        holds.remove(target);
+      } else {
+        holds.put(target, count - 1);
+      }
+    }
+  }
+
+  /*
+   * Reports a target's exception through the scheduler thread's handler,
+   * without letting it end the thread.
+   */
+  private void failed(RuntimeException e) {
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  /*
+   * A ramp on a single target.
+   */
+  private static class Ramp {
+
+    final PWMTarget target;
+    final int from;
+    final int change;
+    final long durationNs;
+    final Easing easing;
+
+    long startNs;
+    int value;
+
+    Ramp(PWMTarget target, int from, int to, long durationNs, Easing easing) {
+      this.target = target;
+      this.from = from;
+      this.change = to - from;
+      this.durationNs = durationNs;
+      this.easing = easing;
+    }
+
+    void start(long now) {
+      startNs = now;
+      value = from;
+      target.setData(from);
+    }
+
+    /*
+     * Writes the value for the current time if it has changed, returns true
+     * once the ramp has finished.
+     */
+    boolean advance(long now) {
+      final long elapsed = now - startNs;
+      final float t = elapsed >= durationNs ? 1f : (float) elapsed / durationNs;
+      final int next = from + Math.round(change * easing.apply(t));
+      if (next != value) {
+        value = next;
+        target.setData(next);
+      }
+      return t >= 1f;
+    }
+
+  }
+
+}
@@ -0,0 +1,88 @@
+package org.codebrothers.jpio.pwm;
+
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.clock.ClockConfig;
+import org.codebrothers.jpio.clock.ClockMash;
+import org.codebrothers.jpio.clock.ClockSource;
+
+/**
+ * A PWM clock source, integer divisor and range, and the frequency they
+ * produce. Integer division keeps every clock cycle the same length, which both
+ * {@link PWMOutput} and {@link PWMSerializer} rely on.
+ */
+final class PWMClock {
+
+  /*
+   * The clock divisor's integer limits.
+   */
+  static final int MIN_DIVISOR = 2;
+  static final int MAX_DIVISOR = 0xFFF;
+
+  /*
+   * The stable sources considered for the PWM clock.
+   */
+  private static final ClockSource[] SOURCES = { ClockSource.OSCILLATOR, ClockSource.PLLD };
+
+  final ClockSource source;
+  final int divisor;
+  final int range;
+  final double frequency;
+  final double error;
+
+  private PWMClock(ClockSource source, int divisor, int range, double target) {
+    this.source = source;
+    this.divisor = divisor;
+    this.range = range;
+    this.frequency = source.frequency / (double) divisor / range;
+    this.error = Math.abs(frequency - target) / target;
+  }
+
+  /*
+   * Searches the sources and divisors for the closest match with a range
+   * between the limits, preferring the larger range when two match equally.
+   * Null if there is none.
+   */
+  static PWMClock solve(double frequency, int minRange, int maxRange) {
+    PWMClock best = null;
+    for (ClockSource source : SOURCES) {
+      for (int divisor = MIN_DIVISOR; divisor <= MAX_DIVISOR; divisor++) {
+        final long range = Math.round(source.frequency / (double) divisor / frequency);
+        if (range < minRange) {
+          // the range only shrinks as the divisor grows
+          break;
+        }
+        if (range > maxRange) {
+          // at low frequencies the smallest divisors need ranges too large to
+          // hold, larger divisors may still fit
+          continue;
+        }
+        final PWMClock solution = new PWMClock(source, divisor, (int) range, frequency);
+        if (best == null || solution.error < best.error
+            || (solution.error == best.error && solution.range > best.range)) {
+          best = solution;
+        }
+      }
+    }
+    return best;
+  }
+
+  /*
+   * Finds the range giving the closest match for a clock, null if it falls
+   * outside the limits.
+   */
+  static PWMClock solve(ClockSource source, int divisor, double frequency, int minRange, int maxRange) {
+    final long range = Math.round(source.frequency / (double) divisor / frequency);
+    if (range < minRange || range > maxRange) {
+      return null;
+    }
+    return new PWMClock(source, divisor, (int) range, frequency);
+  }
+
+  /*
+   * Reconfigures the shared PWM clock.
+   */
+  void apply() {
+    ClockChannel.PWM.apply(new ClockConfig(source, ClockMash.INT, divisor));
+  }
+
+}
@@ -0,0 +1,171 @@
+package org.codebrothers.jpio.pwm;
+
+import java.text.MessageFormat;
+
+import org.codebrothers.jpio.clock.Clock;
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.clock.ClockSource;
+import org.codebrothers.jpio.gpio.GPIO;
+
+/**
+ * Configures a PWM pin by frequency and resolution, rather than by clock
+ * divisor and range.
+ * <p>
+ * {@link #configure(double, int)} solves for the clock source, integer clock
+ * divisor and range which best match the requested frequency whilst giving at
+ * least the requested resolution. The range is cached, so updating the duty is
+ * a single write to the data register.
+ * <p>
+ * Changing frequency is glitch free whenever the current PWM clock can still
+ * meet it, only the range and data registers are rewritten and the output is
+ * never disabled. The PWM clock is shared by both channels, when it does have
+ * to change the other channel's frequency changes with it.
+ */
+public class PWMOutput implements PWMTarget {
+
+  /*
+   * The current clock is kept if it can get within this fraction of the
+   * requested frequency.
+   */
+  private static final double CLOCK_TOLERANCE = 0.001;
+
+  /*
+   * The pin being driven.
+   */
+  public final PWMPin pin;
+
+  private volatile int range;
+
+  private volatile int data;
+
+  private volatile double frequency;
+
+  /**
+   * Constructs the output for the specified pin.
+   *
+   * @param pin
+   *          The pin to drive.
+   */
+  public PWMOutput(PWMPin pin) {
+    this.pin = pin;
+  }
+
+  /**
+   * Configures the output for a frequency and resolution using mark-space
+   * mode, where each period is a single pulse as most devices expect.
+   *
+   * @param frequency
+   *          The requested frequency in Hz.
+   * @param resolutionBits
+   *          The minimum resolution of the duty in bits.
+   *
+   * @return The achieved frequency.
+   */
+  public double configure(double frequency, int resolutionBits) {
+    return configure(frequency, resolutionBits, true);
+  }
+
+  /**
+   * Configures the output for a frequency and resolution. The current duty is
+   * kept.
+   *
+   * @param frequency
+   *          The requested frequency in Hz.
+   * @param resolutionBits
+   *          The minimum resolution of the duty in bits.
+   * @param markSpace
+   *          true to use mark-space mode, false to use the PWM algorithm which
+   *          spreads each period's pulses evenly.
+   *
+   * @return The achieved frequency.
+   *
+   * @throws IllegalArgumentException
+   *           If the frequency can't be produced with the resolution.
+   */
+  public synchronized double configure(double frequency, int resolutionBits, boolean markSpace) {
+    final int minRange = 1 << resolutionBits;
+    final double duty = range == 0 ? 0 : data / (double) range;
+
+    // prefer the current clock, changing it glitches the output
+    final ClockSource currentSource = Clock.getSource(ClockChannel.PWM);
+    final int currentDivisor = (int) Clock.getDivisor(ClockChannel.PWM);
+    PWMClock solution = null;
+    if (currentSource.frequency > 0 && currentDivisor >= PWMClock.MIN_DIVISOR) {
+      solution = PWMClock.solve(currentSource, currentDivisor, frequency, minRange, Integer.MAX_VALUE);
+    }
+    if (solution == null || solution.error > CLOCK_TOLERANCE) {
+      final PWMClock best = PWMClock.solve(frequency, minRange, Integer.MAX_VALUE);
+      if (best == null) {
+        throw new IllegalArgumentException(MessageFormat.format(
+            "Can''t produce {0}Hz with {1} bits of resolution.", frequency, resolutionBits));
+      }
+      if (solution == null || best.error < solution.error) {
+        best.apply();
+        solution = best;
+      }
+    }
+
+    PWM.setControlValue(pin.channel, PWMControl.MS_ENABLE, markSpace);
+    PWM.setRange(pin.channel, solution.range);
+    this.range = solution.range;
+    setDuty(duty);
+    this.frequency = solution.frequency;
+    return this.frequency;
+  }
+
+  /**
+   * Enables the output, putting the pin into PWM mode.
+   */
+  public void enable() {
+    GPIO.setPinFunction(pin.pin, pin.function);
+    PWM.setControl(pin.channel, PWMControl.ENABLE);
+  }
+
+  /**
+   * Disables the output, putting the pin into input mode.
+   */
+  public void disable() {
+    pin.disable();
+  }
+
+  /**
+   * Sets the duty as a fraction of the period.
+   *
+   * @param duty
+   *          The duty, between 0 and 1.
+   */
+  public void setDuty(double duty) {
+    setData((int) Math.round(duty * range));
+  }
+
+  /**
+   * Sets the duty as a data value, between 0 and the range.
+   *
+   * @param data
+   *          The new data value.
+   */
+  @Override
+  public void setData(int data) {
+    this.data = data;
+    PWM.setData(pin.channel, data);
+  }
+
+  /**
+   * The range found by the last call to {@link #configure(double, int)}.
+   *
+   * @return The range.
+   */
+  public int getRange() {
+    return range;
+  }
+
+  /**
+   * The frequency achieved by the last call to {@link #configure(double, int)}.
+   *
+   * @return The frequency in Hz.
+   */
+  public double getFrequency() {
+    return frequency;
+  }
+
+}
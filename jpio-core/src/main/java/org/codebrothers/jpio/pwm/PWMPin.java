@@ -4,7 +4,7 @@ import org.codebrothers.jpio.gpio.Function;
 import org.codebrothers.jpio.gpio.GPIO;
 import org.codebrothers.jpio.gpio.GPIOPin;
 
-public enum PWMPin {
+public enum PWMPin implements PWMTarget {
 
   /**
    * PWM Channel 0
@@ -95,6 +95,7 @@ public enum PWMPin {
     PWM.setRange(channel, range);
   }
 
+  @Override
   public void setData(int data) {
     PWM.setData(channel, data);
   }
@@ -0,0 +1,152 @@
+package org.codebrothers.jpio.pwm;
+
+import java.nio.IntBuffer;
+import java.text.MessageFormat;
+
+import org.codebrothers.jpio.gpio.GPIO;
+
+/**
+ * Uses a PWM channel's serialiser mode to clock an arbitrary bit pattern out
+ * of its pin at a fixed rate, with no CPU involvement in the timing.
+ * <p>
+ * The bitstream is packed into 32 bit words which are sent most significant
+ * bit first, one bit per cycle of the PWM clock. Timing critical protocols
+ * such as one wire LED strips or IR remotes can then be generated without the
+ * jitter of bit banging. Words are fed through the PWM FIFO by a
+ * {@link PWMStream}, the output falls to the silence level once it empties.
+ * <p>
+ * The PWM clock is shared by both channels, configuring a serialiser changes
+ * the clock for the other channel too.
+ */
+public class PWMSerializer {
+
+  /*
+   * Bits per word, used as the channel's range so whole words are sent.
+   */
+  private static final int BITS_PER_WORD = 32;
+
+  /*
+   * The pin the bitstream is sent from.
+   */
+  public final PWMPin pin;
+
+  private final PWMStream stream;
+
+  private double bitRate;
+
+  /*
+   * Whether the stream has been started since the channel was configured, it
+   * starts on the first write once the FIFO has been pre-filled.
+   */
+  private boolean started;
+
+  /**
+   * Constructs a serialiser on the specified pin.
+   *
+   * @param pin
+   *          The pin to send the bitstream from.
+   */
+  public PWMSerializer(PWMPin pin) {
+    this.pin = pin;
+    this.stream = new PWMStream(pin.channel);
+  }
+
+  /**
+   * Configures the PWM clock for the requested bit rate, and the channel for
+   * serialiser mode. The output is enabled by the first write, once it has
+   * pre-filled the FIFO.
+   * <p>
+   * An integer clock divisor is always used so every bit has the same length,
+   * the achieved rate is the closest available from the oscillator or PLLD.
+   *
+   * @param bitRate
+   *          The requested bit rate in bits per second.
+   *
+   * @return The achieved bit rate.
+   *
+   * @throws IllegalArgumentException
+   *           If no source can produce a rate near the one requested.
+   */
+  public double configure(double bitRate) {
+    // one bit per cycle of the clock
+    final PWMClock clock = PWMClock.solve(bitRate, 1, 1);
+    if (clock == null) {
+      throw new IllegalArgumentException(MessageFormat.format("Bit rate {0} is out of range.", bitRate));
+    }
+
+    // stop the channel whilst it's reconfigured
+    stop();
+
+    clock.apply();
+
+    // serialiser mode, sending whole words, silent when the FIFO empties
+    PWM.setRange(pin.channel, BITS_PER_WORD);
+    PWM.setControl(pin.channel, PWMControl.MODE);
+    PWM.clearControl(pin.channel, PWMControl.REPEAT_LAST);
+    PWM.clearControl(pin.channel, PWMControl.MS_ENABLE);
+    PWM.clearFifo();
+
+    GPIO.setPinFunction(pin.pin, pin.function);
+
+    this.bitRate = clock.frequency;
+    return this.bitRate;
+  }
+
+  /**
+   * Sends the remaining words in the buffer, blocking until they are all in the
+   * FIFO. The buffer's position is advanced to its limit.
+   * <p>
+   * The first write after {@link #configure(double)} fills the FIFO before
+   * enabling the output, so the channel doesn't find it empty before the
+   * first words arrive.
+   *
+   * @param words
+   *          The packed bitstream.
+   */
+  public void write(IntBuffer words) {
+    if (!started) {
+      stream.write(words);
+      stream.start();
+      started = true;
+    }
+    stream.writeFully(words);
+  }
+
+  /**
+   * Sends the packed bitstream, blocking until it is all in the FIFO.
+   *
+   * @param words
+   *          The packed bitstream.
+   */
+  public void write(int[] words) {
+    write(IntBuffer.wrap(words));
+  }
+
+  /**
+   * Disables the channel and returns it to PWM mode.
+   */
+  public void stop() {
+    stream.stop();
+    started = false;
+    PWM.clearControl(pin.channel, PWMControl.MODE);
+  }
+
+  /**
+   * The stream feeding the FIFO, for its fill level and underrun metrics.
+   *
+   * @return The serialiser's stream.
+   */
+  public PWMStream getStream() {
+    return stream;
+  }
+
+  /**
+   * The bit rate achieved by the last call to {@link #configure(double)}.
+   *
+   * @return The bit rate in bits per second.
+   */
+  public double getBitRate() {
+    return bitRate;
+  }
+
+}
@@ -0,0 +1,267 @@
+package org.codebrothers.jpio.pwm;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams samples to one or both PWM channels through the PWM FIFO, allowing
+ * waveforms to be played at audio rates rather than a value per millisecond.
+ * <p>
+ * Each sample is a data value, the channel's output for one period of its
+ * range. The sample rate is therefore the PWM clock frequency divided by the
+ * range, both must be configured before the stream is started.
+ * <p>
+ * When streaming to both channels the FIFO is shared, samples are taken by
+ * each channel in turn so the buffer must hold interleaved samples, first
+ * channel first.
+ * <p>
+ * The stream keeps some simple metrics: the FIFO fill level found at the last
+ * top up, and the number of underruns, where a channel found the FIFO empty.
+ */
+public class PWMStream {
+
+  /**
+   * The number of 32 bit words the PWM FIFO holds.
+   */
+  public static final int FIFO_DEPTH = 8;
+
+  /*
+   * Default time to park between top ups when writing fully.
+   */
+  private static final long DEFAULT_POLL_INTERVAL_NS = 50000;
+
+  private final PWMChannel[] channels;
+
+  private volatile long pollIntervalNs = DEFAULT_POLL_INTERVAL_NS;
+
+  private volatile int fillLevel;
+
+  private volatile long underruns;
+
+  private volatile long samplesWritten;
+
+  /*
+   * The status read at the start of the current top up.
+   */
+  private int topUpStatus;
+
+  /*
+   * The most words the FIFO can hold, from the writes made since it was last
+   * known to be full or empty. The channels only ever take words away.
+   */
+  private int levelBound = FIFO_DEPTH;
+
+  /**
+   * Constructs a stream to a single channel.
+   *
+   * @param channel
+   *          The channel to stream to.
+   */
+  public PWMStream(PWMChannel channel) {
+    this.channels = new PWMChannel[] { channel };
+  }
+
+  /**
+   * Constructs a stream to both channels, the samples must be interleaved.
+   *
+   * @param first
+   *          The channel taking the first of each pair of samples.
+   * @param second
+   *          The channel taking the second of each pair of samples.
+   */
+  public PWMStream(PWMChannel first, PWMChannel second) {
+    this.channels = new PWMChannel[] { first, second };
+  }
+
+  /**
+   * Switches the channels to use the FIFO, clears any error flags and enables
+   * the channels. The FIFO itself isn't cleared, so samples already written
+   * are played first.
+   * <p>
+   * Pre-fill the FIFO with {@link #write(IntBuffer)} before starting to avoid
+   * an underrun on the first samples.
+   */
+  public void start() {
+    for (PWMChannel channel : channels) {
+      PWM.setControl(channel, PWMControl.USE_FIFO);
+    }
+    PWM.clearStatus(PWMStatus.FIFO_READ_ERROR);
+    PWM.clearStatus(PWMStatus.FIFO_WRITE_ERROR);
+    for (PWMChannel channel : channels) {
+      PWM.setControl(channel, PWMControl.ENABLE);
+    }
+  }
+
+  /**
+   * Disables the channels, returns them to using their data registers and
+   * clears the FIFO.
+   */
+  public void stop() {
+    for (PWMChannel channel : channels) {
+      PWM.clearControl(channel, PWMControl.ENABLE);
+      PWM.clearControl(channel, PWMControl.USE_FIFO);
+    }
+    PWM.clearFifo();
+    levelBound = 0;
+  }
+
+  /**
+   * Tops up the FIFO from the buffer until the FIFO is full or the buffer is
+   * exhausted. Does not block. The buffer's position is advanced by the number
+   * of samples written.
+   *
+   * @param samples
+   *          The samples to write.
+   *
+   * @return The number of samples written.
+   */
+  public int write(IntBuffer samples) {
+    final int position = samples.position();
+    final int length = samples.remaining();
+    int written = 0;
+    while (written < length && !beginTopUp(written)) {
+      PWM.writeFifo(samples.get(position + written));
+      written++;
+    }
+    endTopUp(written);
+    samples.position(position + written);
+    return written;
+  }
+
+  /**
+   * Tops up the FIFO from the buffer until the FIFO is full or the buffer is
+   * exhausted. Does not block. The samples are treated as unsigned. The
+   * buffer's position is advanced by the number of samples written.
+   *
+   * @param samples
+   *          The samples to write.
+   *
+   * @return The number of samples written.
+   */
+  public int write(ShortBuffer samples) {
+    final int position = samples.position();
+    final int length = samples.remaining();
+    int written = 0;
+    while (written < length && !beginTopUp(written)) {
+      PWM.writeFifo(samples.get(position + written) & 0xFFFF);
+      written++;
+    }
+    endTopUp(written);
+    samples.position(position + written);
+    return written;
+  }
+
+  /**
+   * Writes every remaining sample in the buffer, parking between top ups
+   * whilst the FIFO is full.
+   *
+   * @param samples
+   *          The samples to write.
+   */
+  public void writeFully(IntBuffer samples) {
+    while (samples.hasRemaining()) {
+      if (write(samples) == 0) {
+        LockSupport.parkNanos(pollIntervalNs);
+      }
+    }
+  }
+
+  /**
+   * Writes every remaining sample in the buffer, parking between top ups
+   * whilst the FIFO is full.
+   *
+   * @param samples
+   *          The samples to write.
+   */
+  public void writeFully(ShortBuffer samples) {
+    while (samples.hasRemaining()) {
+      if (write(samples) == 0) {
+        LockSupport.parkNanos(pollIntervalNs);
+      }
+    }
+  }
+
+  /**
+   * Sets how long {@link #writeFully(IntBuffer)} parks whilst the FIFO is full.
+   * Should be comfortably shorter than the time the channels take to play
+   * {@link #FIFO_DEPTH} samples.
+   *
+   * @param pollIntervalNs
+   *          The time to park in nanoseconds.
+   */
+  public void setPollInterval(long pollIntervalNs) {
+    this.pollIntervalNs = pollIntervalNs;
+  }
+
+  /**
+   * The number of words found in the FIFO at the start of the last top up. A
+   * level near zero means the FIFO is being topped up too slowly.
+   * <p>
+   * The FIFO only reports whether it is full or empty, so the level is exact
+   * when the FIFO was full, empty, or filled by the top up. When the buffer ran
+   * out before the FIFO was full it is the most the FIFO can have held, given
+   * the words written since it was last full or empty.
+   *
+   * @return The fill level, between 0 and {@link #FIFO_DEPTH}.
+   */
+  public int getFillLevel() {
+    return fillLevel;
+  }
+
+  /**
+   * The number of top ups which found a channel had read from the empty FIFO.
+   *
+   * @return The number of underruns detected.
+   */
+  public long getUnderruns() {
+    return underruns;
+  }
+
+  /**
+   * The total number of samples written to the FIFO.
+   *
+   * @return The number of samples written.
+   */
+  public long getSamplesWritten() {
+    return samplesWritten;
+  }
+
+  /*
+   * Reads the status register before each write, returning true if the FIFO is
+   * full. The first read of a top up also checks for and clears an underrun.
+   */
+  private boolean beginTopUp(int written) {
+    final int status = PWM.getStatusRegister();
+    if (written == 0) {
+      topUpStatus = status;
+      if ((status & PWMStatus.FIFO_READ_ERROR.value) != 0) {
+        underruns++;
+        PWM.clearStatus(PWMStatus.FIFO_READ_ERROR);
+      }
+    }
+    return (status & PWMStatus.FIFO_FULL.value) != 0;
+  }
+
+  /*
+   * Records the metrics for a top up.
+   */
+  private void endTopUp(int written) {
+    samplesWritten += written;
+    final int level;
+    if ((topUpStatus & PWMStatus.FIFO_FULL.value) != 0) {
+      level = FIFO_DEPTH;
+    } else if ((topUpStatus & PWMStatus.FIFO_EMPTY.value) != 0) {
+      level = 0;
+    } else if (written > 0 && (PWM.getStatusRegister() & PWMStatus.FIFO_FULL.value) != 0) {
+      // words taken during a long top up make room for more writes
+      level = Math.max(0, FIFO_DEPTH - written);
+    } else {
+      // there was room for at least one more word
+      level = Math.max(0, Math.min(levelBound, FIFO_DEPTH - 1 - written));
+    }
+    fillLevel = level;
+    levelBound = Math.min(FIFO_DEPTH, level + written);
+  }
+
+}
@@ -0,0 +1,17 @@
+package org.codebrothers.jpio.pwm;
+
+/**
+ * Something which takes a PWM data value, a hardware {@link PWMPin} or a
+ * channel generated some other way.
+ */
+public interface PWMTarget {
+
+  /**
+   * Sets the data value, the output's duty relative to its range.
+   * 
+   * @param data
+   *          The new data value.
+   */
+  public void setData(int data);
+
+}
@@ -0,0 +1,67 @@
+package org.codebrothers.jpio.register;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implements the read-modify-write and ordering operations of a
+ * {@link RegisterBank} in terms of its {@link #get(int)} and
+ * {@link #put(int, int)}, so a bank only needs to provide those two.
+ * <p>
+ * Ordered writes default to a full barrier before a plain write, which is
+ * correct for any bank. Banks which can store with release semantics, a lazy
+ * set, override {@link #putOrdered(int, int)} and
+ * {@link #putRelease(int, int)} so that only {@link #fence()} pays for a full
+ * barrier.
+ */
+public abstract class AbstractRegisterBank implements RegisterBank {
+
+  /*
+   * Updated atomically to form a full barrier, one per bank so that banks
+   * don't contend for it.
+   */
+  private final AtomicInteger barrier = new AtomicInteger();
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    fence();
+    put(index, value);
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    fence();
+    put(index, value);
+  }
+
+  @Override
+  public void fence() {
+    // an atomic read-modify-write orders every access either side of it
+    barrier.incrementAndGet();
+  }
+
+  @Override
+  public void setBits(final int index, final int value) {
+    putRelease(index, get(index) | value);
+  }
+
+  @Override
+  public void clearMask(final int index, final int mask) {
+    putRelease(index, get(index) & mask);
+  }
+
+  @Override
+  public void setMaskedValue(final int index, final int mask, final int value) {
+    putRelease(index, (get(index) & mask) | value);
+  }
+
+  @Override
+  public boolean isBitSet(final int index, final int bit) {
+    return (get(index) & bit) != 0;
+  }
+
+  @Override
+  public boolean isBitClear(final int index, final int bit) {
+    return (get(index) & bit) == 0;
+  }
+
+}
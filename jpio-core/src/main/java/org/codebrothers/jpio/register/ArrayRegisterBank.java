@@ -0,0 +1,52 @@
+package org.codebrothers.jpio.register;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bank held in an int array on the heap. Nothing is connected to the
+ * registers, useful for debugging and running without hardware.
+ * <p>
+ * Reads are volatile and writes are lazy sets, so ordered writes cost no more
+ * than plain ones.
+ */
+public class ArrayRegisterBank extends AbstractRegisterBank {
+
+  private final AtomicIntegerArray registers;
+
+  /**
+   * Constructs a bank of zeroed registers.
+   * 
+   * @param size
+   *          The number of registers.
+   */
+  public ArrayRegisterBank(int size) {
+    this.registers = new AtomicIntegerArray(size);
+  }
+
+  @Override
+  public int size() {
+    return registers.length();
+  }
+
+  @Override
+  public int get(final int index) {
+    return registers.get(index);
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    registers.lazySet(index, value);
+  }
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    registers.lazySet(index, value);
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    // a lazy set already orders earlier reads as well as writes
+    registers.lazySet(index, value);
+  }
+
+}
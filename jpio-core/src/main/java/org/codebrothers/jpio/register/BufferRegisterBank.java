@@ -0,0 +1,107 @@
+package org.codebrothers.jpio.register;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A bank backed by an IntBuffer. Covers the direct buffers handed out by the
+ * native library, memory mapped files and device windows, and heap buffers.
+ * <p>
+ * An IntBuffer has no ordered store. Where a bank is constructed over a
+ * ByteBuffer and Unsafe is enabled, see {@link RegisterBanks#UNSAFE_PROPERTY},
+ * ordered writes are lazy sets through an {@link UnsafeRegisterBank} over the
+ * same memory, after checking the index. Otherwise each ordered write is
+ * preceded by a full barrier.
+ */
+public class BufferRegisterBank extends AbstractRegisterBank {
+
+  private final IntBuffer buffer;
+
+  /*
+   * The same registers reached through Unsafe for ordered writes, null if not
+   * available.
+   */
+  private final UnsafeRegisterBank ordered;
+
+  /**
+   * Constructs a bank over the whole of the buffer.
+   * 
+   * @param buffer
+   *          The buffer holding the registers.
+   */
+  public BufferRegisterBank(IntBuffer buffer) {
+    this(buffer, null);
+  }
+
+  /**
+   * Constructs a bank over the whole of the buffer. The peripherals are little
+   * endian, the buffer's byte order is set to match.
+   * 
+   * @param buffer
+   *          The buffer holding the registers.
+   */
+  public BufferRegisterBank(ByteBuffer buffer) {
+    // Unsafe ignores the position, so it can only be used from the start
+    this(buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+        buffer.position() == 0 && RegisterBanks.USE_UNSAFE ? new UnsafeRegisterBank(buffer) : null);
+  }
+
+  private BufferRegisterBank(IntBuffer buffer, UnsafeRegisterBank ordered) {
+    this.buffer = buffer;
+    this.ordered = ordered;
+  }
+
+  /**
+   * The buffer behind the bank.
+   * 
+   * @return The buffer.
+   */
+  public IntBuffer getBuffer() {
+    return buffer;
+  }
+
+  @Override
+  public int size() {
+    return buffer.capacity();
+  }
+
+  @Override
+  public int get(final int index) {
+    return buffer.get(index);
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    buffer.put(index, value);
+  }
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    if (ordered == null) {
+      super.putOrdered(index, value);
+    } else {
+      ordered.putOrdered(checkIndex(index), value);
+    }
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    if (ordered == null) {
+      super.putRelease(index, value);
+    } else {
+      ordered.putRelease(checkIndex(index), value);
+    }
+  }
+
+  /*
+   * Unsafe doesn't check indices, the buffer would have.
+   */
+  private int checkIndex(final int index) {
+    if (index < 0 || index >= buffer.limit()) {
+      throw new IndexOutOfBoundsException();
+    }
+    return index;
+  }
+
+}
@@ -0,0 +1,135 @@
+package org.codebrothers.jpio.register;
+
+/**
+ * A block of 32 bit peripheral registers, addressed by their index from the
+ * start of the block.
+ * <p>
+ * The drivers only ever touch the hardware through a bank, so the way the
+ * registers are reached can be swapped without changing them: mapped memory
+ * on a Raspberry Pi, plain arrays for debugging, or wrappers which instrument
+ * or simulate the accesses.
+ * <p>
+ * Plain {@link #put(int, int)}s may be reordered, or even merged, with other
+ * accesses by the JIT or processor. Where the hardware must see writes in
+ * program order use {@link #putOrdered(int, int)} or
+ * {@link #putRelease(int, int)}, or a {@link WriteBatch} for a sequence of
+ * them, rather than paying for a full barrier on every access. The writes of
+ * the read-modify-write operations are always released.
+ * <p>
+ * Masks passed to {@link #clearMask(int, int)} and
+ * {@link #setMaskedValue(int, int, int)} are inverse, the bits to keep are
+ * high, matching the masks held by the peripheral enums.
+ */
+public interface RegisterBank {
+
+  /**
+   * The number of registers in the bank.
+   * 
+   * @return The number of registers.
+   */
+  int size();
+
+  /**
+   * Reads a register.
+   * 
+   * @param index
+   *          The index of the register.
+   * 
+   * @return The register's value.
+   */
+  int get(int index);
+
+  /**
+   * Writes a register.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param value
+   *          The value to write.
+   */
+  void put(int index, int value);
+
+  /**
+   * Writes a register, after every earlier write to any register. The write
+   * may still pass later reads.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param value
+   *          The value to write.
+   */
+  void putOrdered(int index, int value);
+
+  /**
+   * Writes a register, after every earlier read and write of any register.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param value
+   *          The value to write.
+   */
+  void putRelease(int index, int value);
+
+  /**
+   * A full barrier, every earlier register access completes before any later
+   * one.
+   */
+  void fence();
+
+  /**
+   * Sets bits in a register, leaving the others unchanged.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param value
+   *          The bits to set high.
+   */
+  void setBits(int index, int value);
+
+  /**
+   * Clears a group of bits in a register using an inverse mask.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param mask
+   *          The inverse mask, bits which are low are cleared.
+   */
+  void clearMask(int index, int mask);
+
+  /**
+   * Clears a group of bits using an inverse mask, then sets the value.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param mask
+   *          The inverse mask, bits which are low are cleared.
+   * @param value
+   *          The bits to set high.
+   */
+  void setMaskedValue(int index, int mask, int value);
+
+  /**
+   * Checks if a bit is set in a register.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param bit
+   *          The bit to check, pre-shifted.
+   * 
+   * @return true if the bit is set.
+   */
+  boolean isBitSet(int index, int bit);
+
+  /**
+   * Checks if a bit is clear in a register.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param bit
+   *          The bit to check, pre-shifted.
+   * 
+   * @return true if the bit is clear.
+   */
+  boolean isBitClear(int index, int bit);
+
+}
@@ -0,0 +1,105 @@
+package org.codebrothers.jpio.register;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.MemoryMap;
+
+/**
+ * Factory methods for the standard {@link RegisterBank} implementations.
+ * <p>
+ * By default the array and buffer backed banks are used, every access is
+ * bounds checked. Setting the system property {@value #UNSAFE_PROPERTY} to
+ * true uses the {@link UnsafeRegisterBank} for buffer backed banks where it is
+ * supported, which skips the checks, and lets a {@link BufferRegisterBank}
+ * make its ordered writes through Unsafe. Heap banks, such as the debug banks,
+ * are always checked.
+ */
+public class RegisterBanks {
+
+  /**
+   * The system property which, set to true, enables the Unsafe banks.
+   */
+  public static final String UNSAFE_PROPERTY = "jpio.unsafe";
+
+  /*
+   * Whether Unsafe is enabled and supported, the one switch for every use of
+   * Unsafe in the buffer backed banks.
+   */
+  static final boolean USE_UNSAFE = Boolean.getBoolean(UNSAFE_PROPERTY) && UnsafeRegisterBank.isSupported();
+
+  private RegisterBanks() {
+    // cannot be constructed
+  }
+
+  /**
+   * A bank held in an int array on the heap.
+   * 
+   * @param size
+   *          The number of registers.
+   * 
+   * @return The bank.
+   */
+  public static RegisterBank heap(int size) {
+    return new ArrayRegisterBank(size);
+  }
+
+  /**
+   * A bank held in a direct buffer, off the heap.
+   * 
+   * @param size
+   *          The number of registers.
+   * 
+   * @return The bank.
+   */
+  public static RegisterBank direct(int size) {
+    return wrap(ByteBuffer.allocateDirect(size * 4));
+  }
+
+  /**
+   * A bank mapped from a window of a file or device, such as
+   * <code>/dev/mem</code>.
+   * 
+   * @param file
+   *          The file to map.
+   * @param offset
+   *          The offset of the window into the file, must be page aligned.
+   * @param size
+   *          The number of registers.
+   * 
+   * @return The bank.
+   * 
+   * @throws IOException
+   *           If the file can't be mapped.
+   */
+  public static RegisterBank mapped(File file, long offset, int size) throws IOException {
+    return wrap(MemoryMap.map(file, offset, size * 4));
+  }
+
+  /**
+   * A bank over an existing buffer, such as the native library's mappings.
+   * 
+   * @param buffer
+   *          The buffer holding the registers.
+   * 
+   * @return The bank.
+   */
+  public static RegisterBank wrap(ByteBuffer buffer) {
+    return USE_UNSAFE ? new UnsafeRegisterBank(buffer) : new BufferRegisterBank(buffer);
+  }
+
+  /**
+   * A bank for registers which can't be reached, every access throws an
+   * IllegalStateException with the message.
+   * 
+   * @param message
+   *          Why the registers can't be reached.
+   * 
+   * @return The bank.
+   */
+  public static RegisterBank unavailable(String message) {
+    return new UnavailableRegisterBank(message);
+  }
+
+}
@@ -0,0 +1,32 @@
+package org.codebrothers.jpio.register;
+
+/**
+ * Stands in for a block of registers the backend can't reach, such as the
+ * clock, PWM and SPI registers with <code>/dev/gpiomem</code>. Every access
+ * fails with a message naming the block, rather than a NullPointerException
+ * somewhere in its driver.
+ */
+class UnavailableRegisterBank extends AbstractRegisterBank {
+
+  private final String message;
+
+  UnavailableRegisterBank(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  @Override
+  public int get(final int index) {
+    throw new IllegalStateException(message);
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    throw new IllegalStateException(message);
+  }
+
+}
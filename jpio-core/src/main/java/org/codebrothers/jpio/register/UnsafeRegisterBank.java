@@ -0,0 +1,202 @@
+package org.codebrothers.jpio.register;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sun.misc.Unsafe;
+
+/**
+ * A bank which reaches its registers through raw addresses with
+ * <code>sun.misc.Unsafe</code>, skipping the bounds checks and byte order
+ * handling of an IntBuffer.
+ * <p>
+ * Reads are volatile, so they are never cached or hoisted out of a polling
+ * loop. Plain writes are plain stores. Ordered and released writes, including
+ * those of the read-modify-write operations, are lazy sets: they are never
+ * reordered with earlier register accesses, but don't wait to become visible
+ * before the next access. On x86 they cost no more than a plain store, on ARM
+ * a store barrier.
+ * <p>
+ * <strong>Indices are not checked.</strong> Accessing a register beyond the
+ * end of the bank reads or corrupts whatever memory lies there, the drivers
+ * only ever use the fixed register offsets of the peripherals.
+ * <p>
+ * Only available where Unsafe can be found and the platform is little endian,
+ * like the peripherals. See {@link #isSupported()}.
+ */
+public class UnsafeRegisterBank implements RegisterBank {
+
+  private static final Unsafe UNSAFE = findUnsafe();
+
+  /*
+   * The offset of the address field in a Buffer, for finding the memory behind
+   * a direct buffer.
+   */
+  private static final long ADDRESS_OFFSET = findAddressOffset();
+
+  /*
+   * The object the registers are held in, null for off heap memory.
+   */
+  private final Object base;
+
+  /*
+   * The address of the first register, relative to the base object.
+   */
+  private final long offset;
+
+  private final int size;
+
+  /*
+   * Updated atomically to form a full barrier.
+   */
+  private final AtomicInteger barrier = new AtomicInteger();
+
+  /*
+   * Holds on to the buffer so its memory isn't freed whilst in use.
+   */
+  @SuppressWarnings("unused")
+  private final Object owner;
+
+  /**
+   * Constructs a bank over an int array.
+   *
+   * @param registers
+   *          The array holding the registers.
+   */
+  public UnsafeRegisterBank(int[] registers) {
+    checkSupported();
+    this.base = registers;
+    this.offset = Unsafe.ARRAY_INT_BASE_OFFSET;
+    this.size = registers.length;
+    this.owner = registers;
+  }
+
+  /**
+   * Constructs a bank over the whole of a buffer, direct or backed by an
+   * array. The buffer's position and byte order are ignored, registers are
+   * always little endian.
+   *
+   * @param buffer
+   *          The buffer holding the registers.
+   */
+  public UnsafeRegisterBank(ByteBuffer buffer) {
+    checkSupported();
+    if (buffer.isDirect()) {
+      this.base = null;
+      this.offset = UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+    } else {
+      this.base = buffer.array();
+      this.offset = Unsafe.ARRAY_BYTE_BASE_OFFSET + buffer.arrayOffset();
+    }
+    this.size = buffer.capacity() / 4;
+    this.owner = buffer;
+  }
+
+  /**
+   * Checks whether Unsafe register access is available on this platform.
+   *
+   * @return true if banks can be constructed.
+   */
+  public static boolean isSupported() {
+    return UNSAFE != null && ADDRESS_OFFSET >= 0 && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int get(final int index) {
+    return UNSAFE.getIntVolatile(base, address(index));
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    UNSAFE.putInt(base, address(index), value);
+  }
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    UNSAFE.putOrderedInt(base, address(index), value);
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    // a lazy set already orders earlier reads as well as writes
+    UNSAFE.putOrderedInt(base, address(index), value);
+  }
+
+  @Override
+  public void fence() {
+    // Java 7's Unsafe has no fences, an atomic read-modify-write orders every
+    // access either side of it
+    barrier.incrementAndGet();
+  }
+
+  @Override
+  public void setBits(final int index, final int value) {
+    final long address = address(index);
+    UNSAFE.putOrderedInt(base, address, UNSAFE.getIntVolatile(base, address) | value);
+  }
+
+  @Override
+  public void clearMask(final int index, final int mask) {
+    final long address = address(index);
+    UNSAFE.putOrderedInt(base, address, UNSAFE.getIntVolatile(base, address) & mask);
+  }
+
+  @Override
+  public void setMaskedValue(final int index, final int mask, final int value) {
+    final long address = address(index);
+    UNSAFE.putOrderedInt(base, address, (UNSAFE.getIntVolatile(base, address) & mask) | value);
+  }
+
+  @Override
+  public boolean isBitSet(final int index, final int bit) {
+    return (UNSAFE.getIntVolatile(base, address(index)) & bit) != 0;
+  }
+
+  @Override
+  public boolean isBitClear(final int index, final int bit) {
+    return (UNSAFE.getIntVolatile(base, address(index)) & bit) == 0;
+  }
+
+  private long address(final int index) {
+    return offset + ((long) index << 2);
+  }
+
+  private static void checkSupported() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Unsafe register access is not supported on this platform.");
+    }
+  }
+
+  /*
+   * Unsafe's constructor is private, the singleton is fetched from its field.
+   */
+  private static Unsafe findUnsafe() {
+    try {
+      final Field field = Unsafe.class.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return (Unsafe) field.get(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static long findAddressOffset() {
+    if (UNSAFE == null) {
+      return -1;
+    }
+    try {
+      return UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+}
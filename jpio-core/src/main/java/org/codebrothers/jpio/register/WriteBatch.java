@@ -0,0 +1,59 @@
+package org.codebrothers.jpio.register;
+
+/**
+ * A sequence of writes to a bank which must reach the hardware in program
+ * order, such as the edges of a bit banged clock.
+ * <p>
+ * Each write in the batch is ordered after the one before it, which is cheap,
+ * and a single full barrier is emitted when the batch is closed so every write
+ * has completed before anything which follows the batch. Intended for use with
+ * try-with-resources:
+ * 
+ * <pre>
+ * try (WriteBatch batch = WriteBatch.begin(JPIO.GPIO)) {
+ *   batch.put(pin.setRegister, pin.pinValue);
+ *   batch.put(pin.clearRegister, pin.pinValue);
+ * }
+ * </pre>
+ */
+public final class WriteBatch implements AutoCloseable {
+
+  private final RegisterBank bank;
+
+  private WriteBatch(RegisterBank bank) {
+    this.bank = bank;
+  }
+
+  /**
+   * Begins a batch of writes to a bank.
+   * 
+   * @param bank
+   *          The bank to write to.
+   * 
+   * @return The batch.
+   */
+  public static WriteBatch begin(RegisterBank bank) {
+    return new WriteBatch(bank);
+  }
+
+  /**
+   * Writes a register, after the batch's earlier writes.
+   * 
+   * @param index
+   *          The index of the register.
+   * @param value
+   *          The value to write.
+   */
+  public void put(int index, int value) {
+    bank.putOrdered(index, value);
+  }
+
+  /**
+   * Ends the batch with a full barrier.
+   */
+  @Override
+  public void close() {
+    bank.fence();
+  }
+
+}
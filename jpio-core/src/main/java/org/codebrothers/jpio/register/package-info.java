@@ -0,0 +1,4 @@
+/**
+ * Access to the peripheral registers through swappable register banks.
+ */
+package org.codebrothers.jpio.register;
@@ -0,0 +1,258 @@
+package org.codebrothers.jpio.servo;
+
+import static org.codebrothers.jpio.JPIO.GPIO;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.codebrothers.jpio.gpio.Function;
+import org.codebrothers.jpio.gpio.GPIOPin;
+
+/**
+ * Drives any number of servos from GPIO pins, generating their pulses on a
+ * single thread.
+ * <p>
+ * Each servo expects a pulse every 20ms, the width of the pulse (usually
+ * between 1 and 2ms) sets its position. The start of each servo's pulse is
+ * staggered across the frame so that the edges are spread out rather than all
+ * falling together.
+ * <p>
+ * At the start of each frame the positions are turned into a schedule of
+ * edges, each edge holding the GPSET/GPCLR masks for every pin which changes at
+ * that time. Edges which fall together are merged into a single write per
+ * register. Between edges the thread parks, only spinning for the last few
+ * microseconds before each one. The schedule is held in preallocated arrays,
+ * so running the servos does not allocate.
+ * <p>
+ * Positions can be changed from any thread without locking, the change is
+ * picked up by the next frame.
+ */
+public class ServoController {
+
+  /**
+   * The length of a frame in microseconds.
+   */
+  public static final int FRAME_US = 20000;
+
+  /**
+   * The narrowest pulse which will be generated, in microseconds.
+   */
+  public static final int MIN_PULSE_US = 500;
+
+  /**
+   * The widest pulse which will be generated, in microseconds.
+   */
+  public static final int MAX_PULSE_US = 2500;
+
+  /*
+   * Parking is only accurate to tens of microseconds, so the thread wakes this
+   * long before each edge and spins the rest of the way.
+   */
+  private static final long SPIN_NS = 100000;
+
+  private static final int GPSET0 = GPIOPin.PIN0.setRegister;
+  private static final int GPCLR0 = GPIOPin.PIN0.clearRegister;
+
+  private final GPIOPin[] pins;
+
+  // pulse widths in microseconds, 0 for no pulse
+  private final AtomicIntegerArray positions;
+
+  // offset of each servo's rising edge into the frame in microseconds
+  private final int[] offsets;
+
+  // the edge schedule, two edges per servo, banks 0 and 1 for each mask
+  private final int[] edgeTimes;
+  private final int[][] edgeSetMasks;
+  private final int[][] edgeClearMasks;
+  private int edgeCount;
+
+  private volatile boolean running;
+
+  private Thread thread;
+
+  /**
+   * Constructs the controller for servos on the specified pins. No pulses are
+   * generated for a servo until its position has been set.
+   *
+   * @param pins
+   *          The pins the servos are attached to, one servo per pin.
+   */
+  public ServoController(GPIOPin... pins) {
+    this.pins = pins.clone();
+    this.positions = new AtomicIntegerArray(pins.length);
+    this.offsets = new int[pins.length];
+    for (int i = 0; i < pins.length; i++) {
+      offsets[i] = i * (FRAME_US - MAX_PULSE_US) / Math.max(1, pins.length - 1);
+    }
+    this.edgeTimes = new int[pins.length * 2];
+    this.edgeSetMasks = new int[pins.length * 2][2];
+    this.edgeClearMasks = new int[pins.length * 2][2];
+  }
+
+  /**
+   * Sets a servo's pulse width.
+   *
+   * @param servo
+   *          The servo's index, its pin's position in the constructor.
+   * @param micros
+   *          The pulse width in microseconds, clamped to the range
+   *          {@link #MIN_PULSE_US} to {@link #MAX_PULSE_US}. 0 stops the
+   *          servo's pulses.
+   */
+  public void setPosition(int servo, int micros) {
+    positions.set(servo, micros == 0 ? 0 : Math.max(MIN_PULSE_US, Math.min(MAX_PULSE_US, micros)));
+  }
+
+  /**
+   * Gets a servo's pulse width.
+   *
+   * @param servo
+   *          The servo's index, its pin's position in the constructor.
+   *
+   * @return The pulse width in microseconds, 0 if the servo has no pulses.
+   */
+  public int getPosition(int servo) {
+    return positions.get(servo);
+  }
+
+  /**
+   * The number of servos being driven.
+   *
+   * @return The number of servos.
+   */
+  public int getSize() {
+    return pins.length;
+  }
+
+  /**
+   * Configures the pins as outputs, low, and starts generating pulses.
+   */
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    for (GPIOPin pin : pins) {
+      GPIO.put(pin.clearRegister, pin.pinValue);
+      pin.setFunction(Function.OUTPUT);
+    }
+    running = true;
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        process();
+      }
+    }, "jpio-servo");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * Stops generating pulses, waiting for the current frame to finish.
+   */
+  public synchronized void stop() throws InterruptedException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    thread.join();
+    thread = null;
+  }
+
+  /*
+   * The pulse generating loop, one iteration per frame.
+   */
+  private void process() {
+    long frameStart = System.nanoTime();
+    while (running) {
+      buildSchedule();
+      for (int i = 0; i < edgeCount; i++) {
+        awaitTime(frameStart + edgeTimes[i] * 1000L);
+        writeMasks(GPSET0, edgeSetMasks[i]);
+        writeMasks(GPCLR0, edgeClearMasks[i]);
+      }
+      frameStart += FRAME_US * 1000L;
+      final long now = System.nanoTime();
+      if (now - frameStart > FRAME_US * 1000L) {
+        // fallen a whole frame behind, start afresh rather than catching up
+        frameStart = now;
+      }
+      awaitTime(frameStart);
+    }
+  }
+
+  /*
+   * Turns the positions into a time ordered schedule of edges, merging edges
+   * which fall at the same time.
+   */
+  private void buildSchedule() {
+    edgeCount = 0;
+    for (int i = 0; i < pins.length; i++) {
+      final int position = positions.get(i);
+      if (position != 0) {
+        addEdge(offsets[i], pins[i], true);
+        addEdge(offsets[i] + position, pins[i], false);
+      }
+    }
+  }
+
+  /*
+   * Inserts an edge into the schedule, keeping it sorted by time.
+   */
+  private void addEdge(int time, GPIOPin pin, boolean rising) {
+    int index = edgeCount;
+    while (index > 0 && edgeTimes[index - 1] > time) {
+      index--;
+    }
+    if (index > 0 && edgeTimes[index - 1] == time) {
+      // merge with the existing edge
+      index--;
+    } else {
+      // shuffle the later edges along, reusing the spare mask arrays
+      final int[] spareSet = edgeSetMasks[edgeCount];
+      final int[] spareClear = edgeClearMasks[edgeCount];
+      for (int i = edgeCount; i > index; i--) {
+        edgeTimes[i] = edgeTimes[i - 1];
+        edgeSetMasks[i] = edgeSetMasks[i - 1];
+        edgeClearMasks[i] = edgeClearMasks[i - 1];
+      }
+      edgeTimes[index] = time;
+      edgeSetMasks[index] = spareSet;
+      edgeClearMasks[index] = spareClear;
+      spareSet[0] = spareSet[1] = spareClear[0] = spareClear[1] = 0;
+      edgeCount++;
+    }
+    if (rising) {
+      edgeSetMasks[index][pin.pinOrdinal] |= pin.pinValue;
+    } else {
+      edgeClearMasks[index][pin.pinOrdinal] |= pin.pinValue;
+    }
+  }
+
+  /*
+   * Writes the masks for both banks, skipping any which are empty.
+   */
+  private static void writeMasks(int register, int[] masks) {
+    if (masks[0] != 0) {
+      GPIO.putOrdered(register, masks[0]);
+    }
+    if (masks[1] != 0) {
+      GPIO.putOrdered(register + 1, masks[1]);
+    }
+  }
+
+  /*
+   * Parks until shortly before the time, then spins until it is reached.
+   */
+  private static void awaitTime(long time) {
+    long remaining = time - System.nanoTime();
+    while (remaining > SPIN_NS) {
+      LockSupport.parkNanos(remaining - SPIN_NS);
+      remaining = time - System.nanoTime();
+    }
+    while (time - System.nanoTime() > 0) {
+    }
+  }
+
+}
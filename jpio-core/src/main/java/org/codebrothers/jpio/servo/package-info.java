@@ -0,0 +1,4 @@
+/**
+ * Drives hobby servos from GPIO pins, generating their pulses in software.
+ */
+package org.codebrothers.jpio.servo;
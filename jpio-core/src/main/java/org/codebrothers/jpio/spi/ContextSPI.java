@@ -0,0 +1,51 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.JPIOContext;
+
+/**
+ * The hardware SPI of a board as an {@link SPIBus}, delegating to {@link SPI}.
+ */
+final class ContextSPI implements SPIBus {
+
+  /*
+   * The board whose SPI is driven.
+   */
+  private final JPIOContext context;
+
+  ContextSPI(JPIOContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public void enter() {
+    SPI.enter(context);
+  }
+
+  @Override
+  public void exit() {
+    SPI.exit(context);
+  }
+
+  @Override
+  public void select(SPIDevice device) {
+    SPI.select(context, device);
+  }
+
+  @Override
+  public byte transfer(byte value) {
+    return SPI.transfer(context, value);
+  }
+
+  @Override
+  public int transfer(ByteBuffer tx, ByteBuffer rx) {
+    return SPI.transfer(context, tx, rx);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) {
+    return SPI.write(context, srcs, offset, length);
+  }
+
+}
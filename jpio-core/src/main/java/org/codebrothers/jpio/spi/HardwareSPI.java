@@ -0,0 +1,49 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.JPIO;
+
+/**
+ * The hardware SPI of the default board as an {@link SPIBus}, delegating to
+ * {@link SPI}. See {@link SPI#bus(org.codebrothers.jpio.JPIOContext)} for other
+ * boards.
+ */
+public enum HardwareSPI implements SPIBus {
+
+  /**
+   * The Raspberry Pi's hardware SPI0.
+   */
+  INSTANCE;
+
+  @Override
+  public void enter() {
+    SPI.enter();
+  }
+
+  @Override
+  public void exit() {
+    SPI.exit();
+  }
+
+  @Override
+  public void select(SPIDevice device) {
+    SPI.select(device);
+  }
+
+  @Override
+  public byte transfer(byte value) {
+    return SPI.transfer(value);
+  }
+
+  @Override
+  public int transfer(ByteBuffer tx, ByteBuffer rx) {
+    return SPI.transfer(tx, rx);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) {
+    return SPI.write(JPIO.context(), srcs, offset, length);
+  }
+
+}
@@ -0,0 +1,187 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
+
+/**
+ * Drives a device using the SPI's LoSSI (Low Speed Serial Interface) mode, as
+ * used by many display controllers.
+ * <p>
+ * LoSSI commands and parameters are 8 bits long with a 9th bit indicating
+ * whether the byte is a command (0) or data (1). The SPI generates the 9th bit
+ * itself, so there is no need to bit bang it.
+ * <p>
+ * Bulk data is written using the long data mode, where each write to the FIFO
+ * carries a 32 bit word. This takes a quarter of the FIFO writes needed to send
+ * the same data a byte at a time, which adds up when pushing whole frames of
+ * pixels.
+ * <p>
+ * The SPI must have been entered before the bus is used.
+ */
+public class LoSSIBus {
+
+  /*
+   * The 9th bit, marking a byte as data rather than a command.
+   */
+  private static final int DATA_BIT = 0x100;
+
+  /*
+   * The device being driven.
+   */
+  public final SPIDevice device;
+
+  /*
+   * Precomputed control values, the device's configuration in LoSSI mode with
+   * and without long data words.
+   */
+  private final int lossiControl;
+  private final int longDataControl;
+
+  /*
+   * The board the device is on, null for the default board.
+   */
+  private final JPIOContext context;
+
+  /**
+   * Constructs the bus for the specified device on the default board.
+   *
+   * @param device
+   *          The device to drive.
+   */
+  public LoSSIBus(SPIDevice device) {
+    this(null, device);
+  }
+
+  /**
+   * Constructs the bus for the specified device on a board.
+   *
+   * @param context
+   *          The board, or null for the default board.
+   * @param device
+   *          The device to drive.
+   */
+  public LoSSIBus(JPIOContext context, SPIDevice device) {
+    this.context = context;
+    this.device = device;
+    this.lossiControl = device.controlValue | SPIControl.LEN_LOSSI_ENABLE.value;
+    this.longDataControl = lossiControl | SPIControl.ENABLE_DMA.value | SPIControl.ENABLE_LONG_DATA.value;
+  }
+
+  /**
+   * Sends a command with no parameters.
+   *
+   * @param command
+   *          The command to send.
+   */
+  public void command(int command) {
+    final JPIOContext context = context();
+    SPI.select(context, device, lossiControl);
+    SPI.beginTransfer(context);
+    try {
+      SPI.writeActive(context, command & 0xFF);
+    } finally {
+      SPI.endTransfer(context);
+    }
+  }
+
+  /**
+   * Sends a command followed by its parameters as a single transfer.
+   *
+   * @param command
+   *          The command to send.
+   * @param parameters
+   *          The command's parameters, sent as data.
+   */
+  public void command(int command, byte... parameters) {
+    final JPIOContext context = context();
+    SPI.select(context, device, lossiControl);
+    SPI.beginTransfer(context);
+    try {
+      SPI.writeActive(context, command & 0xFF);
+      for (byte parameter : parameters) {
+        SPI.writeActive(context, DATA_BIT | parameter & 0xFF);
+      }
+    } finally {
+      SPI.endTransfer(context);
+    }
+  }
+
+  /**
+   * Sends the remaining bytes in the buffer as data.
+   * <p>
+   * The bytes are sent four at a time using long data words, any trailing
+   * bytes which don't fill a word are sent individually. The buffer's position
+   * is advanced to its limit.
+   *
+   * @param data
+   *          The data to send.
+   */
+  public void data(ByteBuffer data) {
+    final JPIOContext context = context();
+    final int position = data.position();
+    final int length = data.remaining();
+    final int words = length >> 2;
+    final boolean swap = data.order() != ByteOrder.LITTLE_ENDIAN;
+    if (words > 0) {
+      // bytes leave the FIFO least significant first
+      SPI.select(context, device, longDataControl);
+      SPI.beginTransfer(context);
+      try {
+        for (int i = 0; i < words; i++) {
+          final int word = data.getInt(position + (i << 2));
+          SPI.writeActive(context, swap ? Integer.reverseBytes(word) : word);
+        }
+      } finally {
+        SPI.endTransfer(context);
+      }
+    }
+    if ((length & 3) != 0) {
+      SPI.select(context, device, lossiControl);
+      SPI.beginTransfer(context);
+      try {
+        for (int i = words << 2; i < length; i++) {
+          SPI.writeActive(context, DATA_BIT | data.get(position + i) & 0xFF);
+        }
+      } finally {
+        SPI.endTransfer(context);
+      }
+    }
+    data.position(position + length);
+  }
+
+  /**
+   * Sends the remaining words in the buffer as data using long data words, the
+   * least significant byte of each word is sent first. The buffer's position is
+   * advanced to its limit.
+   *
+   * @param data
+   *          The data to send.
+   */
+  public void data(IntBuffer data) {
+    final JPIOContext context = context();
+    final int position = data.position();
+    final int length = data.remaining();
+    SPI.select(context, device, longDataControl);
+    SPI.beginTransfer(context);
+    try {
+      for (int i = 0; i < length; i++) {
+        SPI.writeActive(context, data.get(position + i));
+      }
+    } finally {
+      SPI.endTransfer(context);
+    }
+    data.position(position + length);
+  }
+
+  /*
+   * The board to drive, resolving the default board on each use.
+   */
+  private JPIOContext context() {
+    return context == null ? JPIO.context() : context;
+  }
+
+}
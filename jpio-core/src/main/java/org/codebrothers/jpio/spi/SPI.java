@@ -1,17 +1,23 @@
 package org.codebrothers.jpio.spi;
 
-import static org.codebrothers.jpio.JPIO.SPI0;
-import static org.codebrothers.jpio.util.BitUtils.clearMask;
-import static org.codebrothers.jpio.util.BitUtils.isBitClear;
-import static org.codebrothers.jpio.util.BitUtils.setBits;
-import static org.codebrothers.jpio.util.BitUtils.setMaskedValue;
+import static org.codebrothers.jpio.spi.SPISelection.UNKNOWN;
 
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
 import org.codebrothers.jpio.gpio.Function;
 import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.metrics.Metrics;
+import org.codebrothers.jpio.register.RegisterBank;
 
 /**
  * Can be used to configure and utilise the hardware SPI interface on the
  * Raspberry Pi.
+ * <p>
+ * Each method acts on the default {@link JPIOContext}, or on the board given.
+ * The device last selected is remembered per board, in its
+ * {@link JPIOContext#spiSelection}.
  * 
  * @author Rick Watson
  */
@@ -36,14 +42,29 @@ public class SPI {
    * and clears any previous control settings.
    */
   public static void enter() {
+    enter(JPIO.context());
+  }
+
+  /**
+   * Enters SPI mode.
+   * <p>
+   * Configures pins to their correct alternative functions, clears the FIFOs
+   * and clears any previous control settings.
+   * 
+   * @param context
+   *          The board.
+   */
+  public static void enter(JPIOContext context) {
     // Set up ALT function for the SPI pins
     for (GPIOPin spiPin : SPI_PINS) {
-      spiPin.setFunction(SPI_PIN_FUNCTION);
+      spiPin.setFunction(context, SPI_PIN_FUNCTION);
     }
     // Clear all bits on status/control register
-    SPI0.put(SPI_CONTROL_STATUS_REGISTER, 0);
+    context.spi0().put(SPI_CONTROL_STATUS_REGISTER, 0);
+    invalidateSelection(context);
+    selectChipSelectPin(context, null);
     // Clear FIFOs
-    setClear(SPIClear.ALL);
+    setClear(context, SPIClear.ALL);
   }
 
   /**
@@ -52,8 +73,20 @@ public class SPI {
    * Puts all associated pins into input mode.
    */
   public static void exit() {
+    exit(JPIO.context());
+  }
+
+  /**
+   * Exits the SPI mode.
+   * <p>
+   * Puts all associated pins into input mode.
+   * 
+   * @param context
+   *          The board.
+   */
+  public static void exit(JPIOContext context) {
     for (GPIOPin spiPin : SPI_PINS) {
-      spiPin.setFunction(Function.INPUT);
+      spiPin.setFunction(context, Function.INPUT);
     }
   }
 
@@ -66,10 +99,24 @@ public class SPI {
    *          The controls new value.
    */
   public static void setControlValue(SPIControl control, boolean value) {
+    setControlValue(JPIO.context(), control, value);
+  }
+
+  /**
+   * Sets or clears the specified control value.
+   * 
+   * @param context
+   *          The board.
+   * @param control
+   *          The control to modify.
+   * @param value
+   *          The controls new value.
+   */
+  public static void setControlValue(JPIOContext context, SPIControl control, boolean value) {
     if (value) {
-      setControl(control);
+      setControl(context, control);
     } else {
-      clearControl(control);
+      clearControl(context, control);
     }
   }
 
@@ -80,7 +127,20 @@ public class SPI {
    *          The control to set high.
    */
   public static void setControl(SPIControl control) {
-    setBits(SPI0, SPI_CONTROL_STATUS_REGISTER, control.value);
+    setControl(JPIO.context(), control);
+  }
+
+  /**
+   * Sets the specified control value high.
+   * 
+   * @param context
+   *          The board.
+   * @param control
+   *          The control to set high.
+   */
+  public static void setControl(JPIOContext context, SPIControl control) {
+    invalidateSelection(context);
+    context.spi0().setBits(SPI_CONTROL_STATUS_REGISTER, control.value);
   }
 
   /**
@@ -90,7 +150,20 @@ public class SPI {
    *          The control to set low.
    */
   public static void clearControl(SPIControl control) {
-    clearMask(SPI0, SPI_CONTROL_STATUS_REGISTER, control.mask);
+    clearControl(JPIO.context(), control);
+  }
+
+  /**
+   * Sets the specified control value low.
+   * 
+   * @param context
+   *          The board.
+   * @param control
+   *          The control to set low.
+   */
+  public static void clearControl(JPIOContext context, SPIControl control) {
+    invalidateSelection(context);
+    context.spi0().clearMask(SPI_CONTROL_STATUS_REGISTER, control.mask);
   }
 
   /**
@@ -100,7 +173,21 @@ public class SPI {
    *          The chip to select
    */
   public static void setChipSelect(SPIChipSelect chipSelect) {
-    setMaskedValue(SPI0, SPI_CONTROL_STATUS_REGISTER, SPIChipSelect.CHIP_SELECT_MASK, chipSelect.value);
+    setChipSelect(JPIO.context(), chipSelect);
+  }
+
+  /**
+   * Controls which chip is selected by the SPI's CS pins.
+   * 
+   * @param context
+   *          The board.
+   * @param chipSelect
+   *          The chip to select
+   */
+  public static void setChipSelect(JPIOContext context, SPIChipSelect chipSelect) {
+    invalidateSelection(context);
+    selectChipSelectPin(context, null);
+    context.spi0().setMaskedValue(SPI_CONTROL_STATUS_REGISTER, SPIChipSelect.CHIP_SELECT_MASK, chipSelect.value);
   }
 
   /**
@@ -111,7 +198,21 @@ public class SPI {
    *          The data mode SPI should use.
    */
   public static void setDataMode(SPIDataMode dataMode) {
-    setMaskedValue(SPI0, SPI_CONTROL_STATUS_REGISTER, SPIDataMode.DATA_MODE_MASK, dataMode.value);
+    setDataMode(JPIO.context(), dataMode);
+  }
+
+  /**
+   * Configures the data mode for SPI.
+   * <p>
+   * 
+   * @param context
+   *          The board.
+   * @param dataMode
+   *          The data mode SPI should use.
+   */
+  public static void setDataMode(JPIOContext context, SPIDataMode dataMode) {
+    invalidateSelection(context);
+    context.spi0().setMaskedValue(SPI_CONTROL_STATUS_REGISTER, SPIDataMode.DATA_MODE_MASK, dataMode.value);
   }
 
   /**
@@ -121,8 +222,20 @@ public class SPI {
    *          The FIFO clear setting.
    */
   public static void setClear(SPIClear clear) {
+    setClear(JPIO.context(), clear);
+  }
+
+  /**
+   * Allows you to clear the RX or TX FIFOs.
+   * 
+   * @param context
+   *          The board.
+   * @param clear
+   *          The FIFO clear setting.
+   */
+  public static void setClear(JPIOContext context, SPIClear clear) {
     // no mask, one shot operation!
-    setBits(SPI0, SPI_CONTROL_STATUS_REGISTER, clear.value);
+    context.spi0().setBits(SPI_CONTROL_STATUS_REGISTER, clear.value);
   }
 
   /**
@@ -133,7 +246,131 @@ public class SPI {
    *          The divisor to use.
    */
   public static void setDivisor(SPIDivisor divisor) {
-    SPI0.put(SPI_DIVISOR_REGISTER, divisor.value);
+    setDivisor(JPIO.context(), divisor);
+  }
+
+  /**
+   * Allows you to configure the frequency of the SPI by setting the clock
+   * divisor.
+   * 
+   * @param context
+   *          The board.
+   * @param divisor
+   *          The divisor to use.
+   */
+  public static void setDivisor(JPIOContext context, SPIDivisor divisor) {
+    invalidateSelection(context);
+    context.spi0().put(SPI_DIVISOR_REGISTER, divisor.value);
+  }
+
+  /**
+   * Allows you to configure the frequency of the SPI using any legal divisor,
+   * not just the powers of two offered by {@link SPIDivisor}.
+   * 
+   * @param frequency
+   *          The frequency to use, see {@link SPIFrequency#of(int)}.
+   */
+  public static void setDivisor(SPIFrequency frequency) {
+    setDivisor(JPIO.context(), frequency);
+  }
+
+  /**
+   * Allows you to configure the frequency of the SPI using any legal divisor,
+   * not just the powers of two offered by {@link SPIDivisor}.
+   * 
+   * @param context
+   *          The board.
+   * @param frequency
+   *          The frequency to use, see {@link SPIFrequency#of(int)}.
+   */
+  public static void setDivisor(JPIOContext context, SPIFrequency frequency) {
+    invalidateSelection(context);
+    context.spi0().put(SPI_DIVISOR_REGISTER, frequency.registerValue);
+  }
+
+  /**
+   * Configures the SPI to run at the fastest frequency which does not exceed
+   * the one requested.
+   * 
+   * @param frequency
+   *          The requested frequency in Hz.
+   * 
+   * @return The frequency which was achieved.
+   */
+  public static SPIFrequency setFrequency(int frequency) {
+    return setFrequency(JPIO.context(), frequency);
+  }
+
+  /**
+   * Configures the SPI to run at the fastest frequency which does not exceed
+   * the one requested.
+   * 
+   * @param context
+   *          The board.
+   * @param frequency
+   *          The requested frequency in Hz.
+   * 
+   * @return The frequency which was achieved.
+   */
+  public static SPIFrequency setFrequency(JPIOContext context, int frequency) {
+    final SPIFrequency achieved = SPIFrequency.of(frequency);
+    setDivisor(context, achieved);
+    return achieved;
+  }
+
+  /**
+   * Configures the SPI to talk to the specified device.
+   * <p>
+   * The device's precomputed register values are written whole rather than
+   * being modified field by field. The values last applied are remembered, so
+   * only the registers which differ are written: switching between two devices
+   * costs at most two writes, reselecting the same device costs none.
+   * <p>
+   * If the device uses a GPIO pin as its chip select, the pin will be asserted
+   * and de-asserted around each transfer until another device is selected.
+   * <p>
+   * Selecting holds the board's {@link JPIOContext#lock()}, so concurrent
+   * selects leave the remembered values matching the registers. The bus itself
+   * isn't shared safely: a select and the transfers which follow it must come
+   * from the one thread which owns the bus, such as an {@link SPIExecutor}.
+   * 
+   * @param device
+   *          The device to select.
+   */
+  public static void select(SPIDevice device) {
+    select(JPIO.context(), device);
+  }
+
+  /**
+   * Configures the SPI of a board to talk to the specified device, see
+   * {@link #select(SPIDevice)}.
+   * 
+   * @param context
+   *          The board.
+   * @param device
+   *          The device to select.
+   */
+  public static void select(JPIOContext context, SPIDevice device) {
+    select(context, device, device.controlValue);
+  }
+
+  /*
+   * Selects the device using the specified control/status register value,
+   * skipping any register which already holds its value.
+   */
+  static void select(JPIOContext context, SPIDevice device, int controlValue) {
+    synchronized (context.lock()) {
+      final SPISelection selection = context.spiSelection;
+      if (controlValue != selection.selectedControl) {
+        context.spi0().put(SPI_CONTROL_STATUS_REGISTER, controlValue);
+        selection.selectedControl = controlValue;
+      }
+      if (device.divisorValue != selection.selectedDivisor) {
+        context.spi0().put(SPI_DIVISOR_REGISTER, device.divisorValue);
+        selection.selectedDivisor = device.divisorValue;
+      }
+      selectChipSelectPin(context, device);
+    }
   }
 
   /**
@@ -146,29 +383,356 @@ public class SPI {
    */
 
   public static byte transfer(byte value) {
+    return transfer(JPIO.context(), value);
+  }
+
+  /**
+   * Transfer a byte, and read one back from the SPI.
+   * 
+   * @param context
+   *          The board.
+   * @param value
+   *          The value to write.
+   * 
+   * @return The value which was read.
+   */
+  public static byte transfer(JPIOContext context, byte value) {
+    final RegisterBank spi0 = context.spi0();
     // Clear FIFOs
-    setClear(SPIClear.ALL);
+    setClear(context, SPIClear.ALL);
+
+    // Assert any GPIO chip select
+    assertChipSelectPin(context);
 
     // Set TA = 1
-    setControl(SPIControl.TRANSFER_ACTIVE);
+    spi0.setBits(SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_ACTIVE.value);
 
     // Maybe wait for TXD
-    while (isBitClear(SPI0, SPI_CONTROL_STATUS_REGISTER, SPIControl.TX_CAN_ACCEPT_DATA.value)) {
+    long spins = 0;
+    while (spi0.isBitClear(SPI_CONTROL_STATUS_REGISTER, SPIControl.TX_CAN_ACCEPT_DATA.value)) {
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.SPI.record(spins);
     }
 
-    SPI0.put(SPI_FIFO_REGISTER, value);
+    spi0.putOrdered(SPI_FIFO_REGISTER, value);
 
     // Wait for DONE to be set
-    while (isBitClear(SPI0, SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_DONE.value)) {
+    spins = 0;
+    while (spi0.isBitClear(SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_DONE.value)) {
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.SPI.record(spins);
     }
 
     // Read any byte sent back
-    int returnValue = SPI0.get(SPI_FIFO_REGISTER);
+    int returnValue = spi0.get(SPI_FIFO_REGISTER);
 
     // Set TA = 0, and also set the barrier
-    clearControl(SPIControl.TRANSFER_ACTIVE);
+    spi0.clearMask(SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_ACTIVE.mask);
+
+    // De-assert any GPIO chip select
+    deassertChipSelectPin(context);
 
     // truncate and return
     return (byte) returnValue;
   }
+
+  /**
+   * Transfers a block of bytes in a single transfer, reading the bytes which
+   * are clocked back in at the same time.
+   * <p>
+   * The buffers are accessed directly using absolute gets and puts, so direct
+   * buffers can be streamed to or from the SPI without being copied through an
+   * intermediate array. The position of each buffer is advanced by the number
+   * of bytes transferred.
+   * 
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   * 
+   * @return The number of bytes transferred, the smaller of the two buffers
+   *         remaining bytes when both are given.
+   * 
+   * @throws IllegalArgumentException
+   *           If neither buffer is given.
+   */
+  public static int transfer(ByteBuffer tx, ByteBuffer rx) {
+    return transfer(JPIO.context(), tx, rx);
+  }
+
+  /**
+   * Transfers a block of bytes on a board in a single transfer, see
+   * {@link #transfer(ByteBuffer, ByteBuffer)}.
+   * 
+   * @param context
+   *          The board.
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   * 
+   * @return The number of bytes transferred, the smaller of the two buffers
+   *         remaining bytes when both are given.
+   * 
+   * @throws IllegalArgumentException
+   *           If neither buffer is given.
+   */
+  public static int transfer(JPIOContext context, ByteBuffer tx, ByteBuffer rx) {
+    final int length;
+    if (tx == null && rx == null) {
+      throw new IllegalArgumentException("At least one of tx or rx must be given.");
+    } else if (tx == null) {
+      length = rx.remaining();
+    } else if (rx == null) {
+      length = tx.remaining();
+    } else {
+      length = Math.min(tx.remaining(), rx.remaining());
+    }
+
+    beginTransfer(context);
+    try {
+      transferActive(context, tx, rx, length);
+    } finally {
+      endTransfer(context);
+    }
+    return length;
+  }
+
+  /**
+   * Performs a half duplex transfer for three wire devices which share one
+   * data line for both directions.
+   * <p>
+   * The command is written, then the SPI is switched to bidirectional read mode
+   * (REN) and the response is read in bulk, all within a single transfer. The
+   * chip select is held throughout, TA is only toggled once. The position of
+   * each buffer is advanced by the number of bytes transferred.
+   * 
+   * @param command
+   *          The bytes to write before reading.
+   * @param response
+   *          The buffer to read into, its remaining bytes are filled.
+   * 
+   * @return The number of bytes read.
+   * 
+   * @throws IllegalArgumentException
+   *           If either buffer isn't given.
+   */
+  public static int transferHalfDuplex(ByteBuffer command, ByteBuffer response) {
+    return transferHalfDuplex(JPIO.context(), command, response);
+  }
+
+  /**
+   * Performs a half duplex transfer on a board, see
+   * {@link #transferHalfDuplex(ByteBuffer, ByteBuffer)}.
+   * 
+   * @param context
+   *          The board.
+   * @param command
+   *          The bytes to write before reading.
+   * @param response
+   *          The buffer to read into, its remaining bytes are filled.
+   * 
+   * @return The number of bytes read.
+   * 
+   * @throws IllegalArgumentException
+   *           If either buffer isn't given.
+   */
+  public static int transferHalfDuplex(JPIOContext context, ByteBuffer command, ByteBuffer response) {
+    if (command == null || response == null) {
+      throw new IllegalArgumentException("Both the command and the response must be given.");
+    }
+    final int length = response.remaining();
+    beginTransfer(context);
+    try {
+      transferActive(context, command, null, command.remaining());
+      context.spi0().setBits(SPI_CONTROL_STATUS_REGISTER, SPIControl.READ_ENABLE.value);
+      transferActive(context, null, response, length);
+    } finally {
+      endTransfer(context);
+      context.spi0().clearMask(SPI_CONTROL_STATUS_REGISTER, SPIControl.READ_ENABLE.mask);
+    }
+    return length;
+  }
+
+  /**
+   * The hardware SPI of a board as an {@link SPIBus}, so code written against
+   * the interface can drive any board. The default board's is
+   * {@link HardwareSPI#INSTANCE}.
+   * 
+   * @param context
+   *          The board.
+   * 
+   * @return The bus.
+   */
+  public static SPIBus bus(JPIOContext context) {
+    return new ContextSPI(context);
+  }
+
+  /*
+   * Writes each buffer's remaining bytes in turn as a single transfer,
+   * discarding anything read back.
+   */
+  static long write(JPIOContext context, ByteBuffer[] srcs, int offset, int length) {
+    long written = 0;
+    beginTransfer(context);
+    try {
+      for (int i = offset; i < offset + length; i++) {
+        final int remaining = srcs[i].remaining();
+        transferActive(context, srcs[i], null, remaining);
+        written += remaining;
+      }
+    } finally {
+      endTransfer(context);
+    }
+    return written;
+  }
+
+  /*
+   * Clears the FIFOs and sets TA, asserting the chip select.
+   */
+  static void beginTransfer(JPIOContext context) {
+    setClear(context, SPIClear.ALL);
+    assertChipSelectPin(context);
+    context.spi0().setBits(SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_ACTIVE.value);
+  }
+
+  /*
+   * Waits for DONE then clears TA, de-asserting the chip select. The RX FIFO is
+   * drained whilst waiting, a full RX FIFO would stop the transfer completing.
+   */
+  static void endTransfer(JPIOContext context) {
+    final RegisterBank spi0 = context.spi0();
+    int status;
+    long spins = 0;
+    while (((status = spi0.get(SPI_CONTROL_STATUS_REGISTER)) & SPIControl.TRANSFER_DONE.value) == 0) {
+      if ((status & SPIControl.RX_CONTAINS_DATA.value) != 0) {
+        spi0.get(SPI_FIFO_REGISTER);
+      }
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.SPI.record(spins);
+    }
+    spi0.clearMask(SPI_CONTROL_STATUS_REGISTER, SPIControl.TRANSFER_ACTIVE.mask);
+    deassertChipSelectPin(context);
+  }
+
+  /*
+   * Writes a value to the TX FIFO whilst TA is set, discarding anything read
+   * back. The RX FIFO is drained whilst waiting for space in the TX FIFO.
+   */
+  static void writeActive(JPIOContext context, int value) {
+    final RegisterBank spi0 = context.spi0();
+    int status;
+    long spins = 0;
+    while (((status = spi0.get(SPI_CONTROL_STATUS_REGISTER)) & SPIControl.TX_CAN_ACCEPT_DATA.value) == 0) {
+      if ((status & SPIControl.RX_CONTAINS_DATA.value) != 0) {
+        spi0.get(SPI_FIFO_REGISTER);
+      }
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.SPI.record(spins);
+    }
+    spi0.putOrdered(SPI_FIFO_REGISTER, value);
+  }
+
+  /*
+   * Moves length bytes through the FIFOs whilst TA is set, keeping the TX FIFO
+   * topped up and draining the RX FIFO as bytes arrive. One status read serves
+   * both FIFOs on each pass. Buffer positions are advanced on completion.
+   */
+  static void transferActive(JPIOContext context, ByteBuffer tx, ByteBuffer rx, int length) {
+    final RegisterBank spi0 = context.spi0();
+    final int txPosition = tx == null ? 0 : tx.position();
+    final int rxPosition = rx == null ? 0 : rx.position();
+    int written = 0;
+    int read = 0;
+    // passes which moved nothing
+    long spins = 0;
+    while (read < length) {
+      final int status = spi0.get(SPI_CONTROL_STATUS_REGISTER);
+      boolean moved = false;
+      if (written < length && (status & SPIControl.TX_CAN_ACCEPT_DATA.value) != 0) {
+        spi0.putOrdered(SPI_FIFO_REGISTER, tx == null ? 0 : tx.get(txPosition + written) & 0xFF);
+        written++;
+        moved = true;
+      }
+      if ((status & SPIControl.RX_CONTAINS_DATA.value) != 0) {
+        final byte value = (byte) spi0.get(SPI_FIFO_REGISTER);
+        if (rx != null) {
+          rx.put(rxPosition + read, value);
+        }
+        read++;
+        moved = true;
+      }
+      if (!moved) {
+        spins++;
+      }
+    }
+    if (Metrics.ENABLED) {
+      Metrics.SPI.record(spins);
+    }
+    if (tx != null) {
+      tx.position(txPosition + length);
+    }
+    if (rx != null) {
+      rx.position(rxPosition + length);
+    }
+  }
+
+  /*
+   * Forgets the register values applied by select(), called whenever the
+   * registers are modified by any other means.
+   */
+  private static void invalidateSelection(JPIOContext context) {
+    synchronized (context.lock()) {
+      context.spiSelection.selectedControl = UNKNOWN;
+      context.spiSelection.selectedDivisor = UNKNOWN;
+    }
+  }
+
+  /*
+   * Remembers the GPIO chip select of the device, or forgets it if the device
+   * is null or uses a hardware chip select.
+   */
+  private static void selectChipSelectPin(JPIOContext context, SPIDevice device) {
+    synchronized (context.lock()) {
+      final SPISelection selection = context.spiSelection;
+      if (device == null || device.chipSelectPin == null) {
+        selection.chipSelectAssertRegister = UNKNOWN;
+        selection.chipSelectDeassertRegister = UNKNOWN;
+      } else {
+        selection.chipSelectAssertRegister = device.chipSelectAssertRegister;
+        selection.chipSelectDeassertRegister = device.chipSelectDeassertRegister;
+        selection.chipSelectValue = device.chipSelectPin.pinValue;
+      }
+    }
+  }
+
+  /*
+   * Asserts the GPIO chip select, if there is one, with a single store. Ordered
+   * so it can't pass the writes which configured the transfer.
+   */
+  private static void assertChipSelectPin(JPIOContext context) {
+    final SPISelection selection = context.spiSelection;
+    if (selection.chipSelectAssertRegister != UNKNOWN) {
+      context.gpio().putOrdered(selection.chipSelectAssertRegister, selection.chipSelectValue);
+    }
+  }
+
+  /*
+   * De-asserts the GPIO chip select, if there is one, with a single store.
+   * Ordered so it can't pass the write clearing TA.
+   */
+  private static void deassertChipSelectPin(JPIOContext context) {
+    final SPISelection selection = context.spiSelection;
+    if (selection.chipSelectDeassertRegister != UNKNOWN) {
+      context.gpio().putOrdered(selection.chipSelectDeassertRegister, selection.chipSelectValue);
+    }
+  }
 }
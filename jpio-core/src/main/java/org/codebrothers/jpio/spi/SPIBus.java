@@ -0,0 +1,71 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A SPI master which devices can be talked to through.
+ * <p>
+ * Implemented by the hardware SPI ({@link HardwareSPI}) and by the bit banged
+ * {@link SoftSPI}, so code written against this interface can be pointed at
+ * either bus by configuration.
+ */
+public interface SPIBus {
+
+  /**
+   * Enters SPI mode, configuring the bus's pins.
+   */
+  public void enter();
+
+  /**
+   * Exits SPI mode, putting the bus's pins into input mode.
+   */
+  public void exit();
+
+  /**
+   * Configures the bus to talk to the specified device.
+   * 
+   * @param device
+   *          The device to select.
+   */
+  public void select(SPIDevice device);
+
+  /**
+   * Transfer a byte, and read one back.
+   * 
+   * @param value
+   *          The value to write.
+   * 
+   * @return The value which was read.
+   */
+  public byte transfer(byte value);
+
+  /**
+   * Transfers a block of bytes in a single transfer, reading the bytes which
+   * are clocked back in at the same time. The position of each buffer is
+   * advanced by the number of bytes transferred.
+   * 
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   * 
+   * @return The number of bytes transferred.
+   */
+  public int transfer(ByteBuffer tx, ByteBuffer rx);
+
+  /**
+   * Writes a sequence of buffers in a single transfer, discarding the bytes
+   * read back. The chip select is held until every buffer has been written.
+   * 
+   * @param srcs
+   *          The buffers to write from.
+   * @param offset
+   *          The offset of the first buffer to write.
+   * @param length
+   *          The number of buffers to write.
+   * 
+   * @return The number of bytes written.
+   */
+  public long write(ByteBuffer[] srcs, int offset, int length);
+
+}
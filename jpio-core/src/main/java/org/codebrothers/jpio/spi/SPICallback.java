@@ -0,0 +1,29 @@
+package org.codebrothers.jpio.spi;
+
+/**
+ * Notified by the {@link SPIExecutor} when a {@link SPITransaction} finishes.
+ * <p>
+ * Callbacks are made from the executor's I/O thread, so implementations should
+ * return quickly and hand any heavy lifting on to another thread.
+ */
+public interface SPICallback {
+
+  /**
+   * Called once the transaction's bytes have been transferred.
+   * 
+   * @param transaction
+   *          The transaction which completed.
+   */
+  public void completed(SPITransaction transaction);
+
+  /**
+   * Called if the transaction could not be completed.
+   * 
+   * @param transaction
+   *          The transaction which failed.
+   * @param cause
+   *          The reason the transaction failed.
+   */
+  public void failed(SPITransaction transaction, Throwable cause);
+
+}
@@ -0,0 +1,158 @@
+package org.codebrothers.jpio.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Exposes a {@link SPIBus} as a NIO channel, allowing data to be streamed to
+ * and from SPI devices using buffers.
+ * <p>
+ * Bytes are moved between the buffers and the SPI FIFOs directly, so direct
+ * buffers can be handed on to a {@link java.nio.channels.FileChannel} or a
+ * socket without being copied through an intermediate array. For example, a
+ * sensor can be streamed to a file using
+ * {@link java.nio.channels.FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)}
+ * .
+ * <p>
+ * Each read or write is performed as a single transfer, with the chip select
+ * held for its duration. Reading clocks out zeros, writing discards the bytes
+ * clocked back in. The SPI must have been entered and configured before the
+ * channel is used, closing the channel does not exit SPI mode.
+ */
+public class SPIChannel implements ByteChannel, GatheringByteChannel {
+
+  private final SPIBus bus;
+
+  private volatile boolean open = true;
+
+  /**
+   * Constructs a channel on the hardware SPI.
+   */
+  public SPIChannel() {
+    this(HardwareSPI.INSTANCE);
+  }
+
+  /**
+   * Constructs a channel on the specified bus.
+   *
+   * @param bus
+   *          The bus to transfer through.
+   */
+  public SPIChannel(SPIBus bus) {
+    this.bus = bus;
+  }
+
+  /**
+   * Reads bytes from the SPI into the buffer, clocking out zeros until the
+   * buffer is full.
+   *
+   * @param dst
+   *          The buffer to read into.
+   *
+   * @return The number of bytes read.
+   */
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    checkOpen();
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+    return bus.transfer(null, dst);
+  }
+
+  /**
+   * Writes the remaining bytes in the buffer to the SPI, discarding the bytes
+   * read back.
+   *
+   * @param src
+   *          The buffer to write from.
+   *
+   * @return The number of bytes written.
+   */
+  @Override
+  public synchronized int write(ByteBuffer src) throws IOException {
+    checkOpen();
+    if (!src.hasRemaining()) {
+      return 0;
+    }
+    return bus.transfer(src, null);
+  }
+
+  /**
+   * Writes a sequence of buffers to the SPI as a single transfer, the chip
+   * select is held until every buffer has been written.
+   *
+   * @param srcs
+   *          The buffers to write from.
+   * @param offset
+   *          The offset of the first buffer to write.
+   * @param length
+   *          The maximum number of buffers to write.
+   *
+   * @return The number of bytes written.
+   */
+  @Override
+  public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    checkOpen();
+    if (offset < 0 || length < 0 || offset > srcs.length - length) {
+      throw new IndexOutOfBoundsException();
+    }
+    return bus.write(srcs, offset, length);
+  }
+
+  /**
+   * Writes a sequence of buffers to the SPI as a single transfer, the chip
+   * select is held until every buffer has been written.
+   *
+   * @param srcs
+   *          The buffers to write from.
+   *
+   * @return The number of bytes written.
+   */
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  /**
+   * Writes the remaining bytes in one buffer whilst reading into another, as a
+   * single full duplex transfer.
+   *
+   * @param src
+   *          The buffer to write from.
+   * @param dst
+   *          The buffer to read into.
+   *
+   * @return The number of bytes transferred.
+   */
+  public synchronized int transfer(ByteBuffer src, ByteBuffer dst) throws IOException {
+    checkOpen();
+    if (!src.hasRemaining() || !dst.hasRemaining()) {
+      return 0;
+    }
+    return bus.transfer(src, dst);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+  /*
+   * Ensures the channel has not been closed.
+   */
+  private void checkOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+
+}
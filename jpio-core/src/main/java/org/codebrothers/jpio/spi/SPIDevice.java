@@ -0,0 +1,233 @@
+package org.codebrothers.jpio.spi;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.gpio.Function;
+import org.codebrothers.jpio.gpio.GPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+
+/**
+ * Describes a device attached to the SPI, holding the configuration the SPI
+ * must be given before talking to it.
+ * <p>
+ * The configuration is precomputed as the values of the control/status and
+ * clock divisor registers, so {@link SPI#select(SPIDevice)} can switch between
+ * devices by writing whole registers rather than modifying them field by
+ * field.
+ * <p>
+ * Any number of devices can share the SPI by using GPIO pins as their chip
+ * selects. The SPI's own chip select lines are left de-asserted for these
+ * devices, and the pin is asserted and de-asserted around each transfer with a
+ * single GPCLR/GPSET store.
+ * <p>
+ * Instances are immutable, so a single instance can be shared by every thread
+ * which talks to the device.
+ */
+public class SPIDevice {
+
+  /*
+   * The chip select line the device is attached to.
+   */
+  public final SPIChipSelect chipSelect;
+
+  /*
+   * The clock polarity and phase the device expects.
+   */
+  public final SPIDataMode dataMode;
+
+  /*
+   * The device's clock speed.
+   */
+  public final SPIFrequency frequency;
+
+  /*
+   * The GPIO pin used as the device's chip select, null if it uses one of the
+   * SPI's chip select lines.
+   */
+  public final GPIOPin chipSelectPin;
+
+  /*
+   * Whether the device's chip select is active high.
+   */
+  public final boolean chipSelectActiveHigh;
+
+  /*
+   * Precomputed control/status register value, chip select, data mode and
+   * polarity with the transfer inactive.
+   */
+  final int controlValue;
+
+  /*
+   * Precomputed clock divisor register value.
+   */
+  final int divisorValue;
+
+  /*
+   * The GPSET/GPCLR registers which assert and de-assert the GPIO chip select.
+   */
+  final int chipSelectAssertRegister;
+  final int chipSelectDeassertRegister;
+
+  /**
+   * Constructs the device with its SPI configuration, the chip select will be
+   * active low.
+   * 
+   * @param chipSelect
+   *          The chip select line the device is attached to.
+   * @param dataMode
+   *          The clock polarity and phase the device expects.
+   * @param divisor
+   *          The divisor giving the device's clock speed.
+   */
+  public SPIDevice(final SPIChipSelect chipSelect, final SPIDataMode dataMode, final SPIDivisor divisor) {
+    this(chipSelect, dataMode, divisor, false);
+  }
+
+  /**
+   * Constructs the device with its SPI configuration.
+   * 
+   * @param chipSelect
+   *          The chip select line the device is attached to.
+   * @param dataMode
+   *          The clock polarity and phase the device expects.
+   * @param divisor
+   *          The divisor giving the device's clock speed.
+   * @param chipSelectActiveHigh
+   *          true if the device's chip select is active high.
+   */
+  public SPIDevice(final SPIChipSelect chipSelect, final SPIDataMode dataMode, final SPIDivisor divisor,
+      final boolean chipSelectActiveHigh) {
+    this(chipSelect, dataMode, SPIFrequency.of(divisor), chipSelectActiveHigh);
+  }
+
+  /**
+   * Constructs the device with its SPI configuration, the chip select will be
+   * active low.
+   * 
+   * @param chipSelect
+   *          The chip select line the device is attached to.
+   * @param dataMode
+   *          The clock polarity and phase the device expects.
+   * @param frequency
+   *          The device's clock speed, see {@link SPIFrequency#of(int)}.
+   */
+  public SPIDevice(final SPIChipSelect chipSelect, final SPIDataMode dataMode, final SPIFrequency frequency) {
+    this(chipSelect, dataMode, frequency, false);
+  }
+
+  /**
+   * Constructs the device with its SPI configuration.
+   * 
+   * @param chipSelect
+   *          The chip select line the device is attached to.
+   * @param dataMode
+   *          The clock polarity and phase the device expects.
+   * @param frequency
+   *          The device's clock speed, see {@link SPIFrequency#of(int)}.
+   * @param chipSelectActiveHigh
+   *          true if the device's chip select is active high.
+   */
+  public SPIDevice(final SPIChipSelect chipSelect, final SPIDataMode dataMode, final SPIFrequency frequency,
+      final boolean chipSelectActiveHigh) {
+    this(chipSelect, null, dataMode, frequency, chipSelectActiveHigh);
+  }
+
+  /**
+   * Constructs the device using a GPIO pin as its chip select.
+   * <p>
+   * See {@link #configureChipSelect()} to prepare the pin before use.
+   * 
+   * @param chipSelectPin
+   *          The GPIO pin the device's chip select is attached to.
+   * @param dataMode
+   *          The clock polarity and phase the device expects.
+   * @param frequency
+   *          The device's clock speed, see {@link SPIFrequency#of(int)}.
+   * @param chipSelectActiveHigh
+   *          true if the device's chip select is active high.
+   */
+  public SPIDevice(final GPIOPin chipSelectPin, final SPIDataMode dataMode, final SPIFrequency frequency,
+      final boolean chipSelectActiveHigh) {
+    this(SPIChipSelect.NONE, chipSelectPin, dataMode, frequency, chipSelectActiveHigh);
+  }
+
+  private SPIDevice(final SPIChipSelect chipSelect, final GPIOPin chipSelectPin, final SPIDataMode dataMode,
+      final SPIFrequency frequency, final boolean chipSelectActiveHigh) {
+    this.chipSelect = chipSelect;
+    this.chipSelectPin = chipSelectPin;
+    this.dataMode = dataMode;
+    this.frequency = frequency;
+    this.chipSelectActiveHigh = chipSelectActiveHigh;
+    this.divisorValue = frequency.registerValue;
+    if (chipSelectPin == null) {
+      this.controlValue = chipSelect.value | dataMode.value | (chipSelectActiveHigh ? polarity(chipSelect) : 0);
+      this.chipSelectAssertRegister = -1;
+      this.chipSelectDeassertRegister = -1;
+    } else {
+      this.controlValue = chipSelect.value | dataMode.value;
+      this.chipSelectAssertRegister = chipSelectActiveHigh ? chipSelectPin.setRegister : chipSelectPin.clearRegister;
+      this.chipSelectDeassertRegister = chipSelectActiveHigh ? chipSelectPin.clearRegister : chipSelectPin.setRegister;
+    }
+  }
+
+  /**
+   * Prepares a GPIO chip select, de-asserting it and configuring the pin as an
+   * output. Does nothing if the device uses one of the SPI's chip select lines.
+   */
+  public void configureChipSelect() {
+    if (chipSelectPin != null) {
+      GPIO.setPinValue(chipSelectPin, !chipSelectActiveHigh);
+      GPIO.setPinFunction(chipSelectPin, Function.OUTPUT);
+    }
+  }
+
+  /**
+   * Configures the GPIO chip select pin, if there is one, on a board.
+   * 
+   * @param context
+   *          The board.
+   */
+  public void configureChipSelect(JPIOContext context) {
+    if (chipSelectPin != null) {
+      GPIO.setPinValue(context, chipSelectPin, !chipSelectActiveHigh);
+      GPIO.setPinFunction(context, chipSelectPin, Function.OUTPUT);
+    }
+  }
+
+  /**
+   * Configures the SPI to talk to this device.
+   * 
+   * @see SPI#select(SPIDevice)
+   */
+  public void select() {
+    SPI.select(this);
+  }
+
+  /**
+   * Configures the SPI of a board to talk to this device.
+   * 
+   * @param context
+   *          The board.
+   * 
+   * @see SPI#select(JPIOContext, SPIDevice)
+   */
+  public void select(JPIOContext context) {
+    SPI.select(context, this);
+  }
+
+  /*
+   * The polarity bit for the chip select line.
+   */
+  private static int polarity(final SPIChipSelect chipSelect) {
+    switch (chipSelect) {
+    case CS0:
+      return SPIControl.CS0_POLARITY.value;
+    case CS1:
+      return SPIControl.CS1_POLARITY.value;
+    case CS2:
+      return SPIControl.CS2_POLARITY.value;
+    default:
+      return 0;
+    }
+  }
+
+}
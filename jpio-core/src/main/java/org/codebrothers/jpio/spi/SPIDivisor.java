@@ -4,8 +4,9 @@ package org.codebrothers.jpio.spi;
  * The divisor constants for hardware SPI, this divides the APB clock to define
  * the speed of the SPI.
  * <p>
- * Required to be a power of two, the maximum SPI clock rate is the rate of the
- * APB clock.
+ * These are the power of two divisors, the maximum SPI clock rate is the rate
+ * of the APB clock. The divisor register accepts any even value, use
+ * {@link SPIFrequency} to run the SPI at rates between these.
  * 
  * @author Rick Watson
  */
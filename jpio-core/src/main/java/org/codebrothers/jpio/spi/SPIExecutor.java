@@ -0,0 +1,201 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Performs SPI transfers on a dedicated I/O thread, so the threads submitting
+ * them never spin waiting on the peripheral.
+ * <p>
+ * Transactions are handed to the I/O thread through a lock-free queue and are
+ * performed in the order they were submitted. The I/O thread parks whilst the
+ * queue is empty and is woken by the next submission.
+ * <p>
+ * Back-to-back transactions for the same {@link SPIDevice} skip selecting the
+ * device again, only the first transaction in the run writes its
+ * configuration. Each transaction is still a transfer of its own, so the chip
+ * select frames every transaction as the device expects.
+ * <p>
+ * An exception thrown by a {@link SPICallback} doesn't stop the I/O thread.
+ * It is recorded on the transaction, see
+ * {@link SPITransaction#getCallbackFailure()}, and passed to the I/O thread's
+ * uncaught exception handler.
+ * <p>
+ * Whilst the executor is running it owns the SPI, no other code should use the
+ * SPI until it has been shut down.
+ */
+public class SPIExecutor {
+
+  private final Queue<SPITransaction> queue = new ConcurrentLinkedQueue<SPITransaction>();
+
+  private final SPIBus bus;
+
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  /**
+   * Constructs the executor on the hardware SPI and starts its I/O thread.
+   * <p>
+   * The SPI must have been entered before any transactions are submitted.
+   */
+  public SPIExecutor() {
+    this(HardwareSPI.INSTANCE);
+  }
+
+  /**
+   * Constructs the executor on the specified bus and starts its I/O thread.
+   * <p>
+   * The bus must have been entered before any transactions are submitted.
+   *
+   * @param bus
+   *          The bus to perform transactions on.
+   */
+  public SPIExecutor(SPIBus bus) {
+    this.bus = bus;
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        process();
+      }
+    }, "jpio-spi");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a transaction to be performed by the I/O thread.
+   *
+   * @param transaction
+   *          The transaction to perform.
+   *
+   * @return The transaction, which can be used to wait for the result.
+   *
+   * @throws RejectedExecutionException
+   *           If the executor has been shut down.
+   */
+  public SPITransaction submit(SPITransaction transaction) {
+    if (!running) {
+      throw new RejectedExecutionException("Executor has been shut down.");
+    }
+    queue.offer(transaction);
+    // the I/O thread only exits once the queue is empty, so if the transaction
+    // raced with a shutdown and is still queued nothing will perform it
+    if (!running && queue.remove(transaction)) {
+      throw new RejectedExecutionException("Executor has been shut down.");
+    }
+    LockSupport.unpark(thread);
+    return transaction;
+  }
+
+  /**
+   * Queues a transfer to be performed by the I/O thread.
+   *
+   * @param device
+   *          The device the transfer is for.
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   * @param callback
+   *          Notified when the transaction finishes, may be null.
+   *
+   * @return The transaction, which can be used to wait for the result.
+   */
+  public SPITransaction submit(SPIDevice device, ByteBuffer tx, ByteBuffer rx, SPICallback callback) {
+    return submit(new SPITransaction(device, tx, rx, callback));
+  }
+
+  /**
+   * Stops accepting transactions. Transactions already queued will still be
+   * performed.
+   */
+  public void shutdown() {
+    running = false;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Waits for the I/O thread to finish after {@link #shutdown()} has been
+   * called.
+   *
+   * @param timeout
+   *          The maximum time to wait.
+   * @param unit
+   *          The unit of the timeout.
+   *
+   * @return true if the I/O thread has finished.
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    thread.join(Math.max(1, unit.toMillis(timeout)));
+    return !thread.isAlive();
+  }
+
+  /*
+   * The I/O thread's loop, drains the queue then parks until woken.
+   */
+  private void process() {
+    SPIDevice selected = null;
+    while (running || !queue.isEmpty()) {
+      final SPITransaction transaction = queue.poll();
+      if (transaction == null) {
+        // idle, next transaction re-selects its device
+        selected = null;
+        LockSupport.park(this);
+        continue;
+      }
+      if (!transaction.start()) {
+        // cancelled whilst queued
+        continue;
+      }
+      try {
+        if (transaction.device != selected) {
+          bus.select(transaction.device);
+          selected = transaction.device;
+        }
+        bus.transfer(transaction.tx, transaction.rx);
+      } catch (Throwable e) {
+        selected = null;
+        notifyFailed(transaction, e);
+        continue;
+      }
+      notifyCompleted(transaction);
+    }
+  }
+
+  /*
+   * Completes the transaction, a misbehaving callback must not kill the thread.
+   */
+  private void notifyCompleted(SPITransaction transaction) {
+    try {
+      transaction.complete();
+    } catch (RuntimeException e) {
+      callbackFailed(transaction, e);
+    }
+  }
+
+  /*
+   * Fails the transaction, a misbehaving callback must not kill the thread.
+   */
+  private void notifyFailed(SPITransaction transaction, Throwable cause) {
+    try {
+      transaction.fail(cause);
+    } catch (RuntimeException e) {
+      callbackFailed(transaction, e);
+    }
+  }
+
+  /*
+   * Records a callback's exception on its transaction and reports it through
+   * the I/O thread's handler, without letting it end the thread.
+   */
+  private void callbackFailed(SPITransaction transaction, RuntimeException e) {
+    transaction.callbackFailure = e;
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+}
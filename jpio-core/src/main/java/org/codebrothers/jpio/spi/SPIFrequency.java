@@ -0,0 +1,114 @@
+package org.codebrothers.jpio.spi;
+
+import java.text.MessageFormat;
+
+/**
+ * A clock frequency for the hardware SPI, along with the divisor which
+ * produces it.
+ * <p>
+ * The CDIV register accepts any even divisor of the core clock, not just the
+ * powers of two offered by {@link SPIDivisor}. Use {@link #of(int)} to find the
+ * fastest rate which does not exceed a device's rated frequency.
+ */
+public final class SPIFrequency {
+
+  /**
+   * The core (APB) clock frequency which the SPI clock is divided from.
+   */
+  public static final int CORE_CLOCK_FREQUENCY = 250000000;
+
+  /**
+   * The smallest divisor the SPI can use.
+   */
+  public static final int MIN_DIVISOR = 2;
+
+  /**
+   * The largest divisor the SPI can use, written to the register as 0.
+   */
+  public static final int MAX_DIVISOR = 65536;
+
+  /*
+   * The divisor applied to the core clock.
+   */
+  public final int divisor;
+
+  /*
+   * The resulting SPI clock frequency in Hz.
+   */
+  public final int frequency;
+
+  /*
+   * The value to write to the divisor register.
+   */
+  final int registerValue;
+
+  private SPIFrequency(final int divisor, final int registerValue) {
+    this.divisor = divisor;
+    this.frequency = CORE_CLOCK_FREQUENCY / divisor;
+    this.registerValue = registerValue;
+  }
+
+  /**
+   * Finds the fastest SPI clock which does not exceed the requested frequency.
+   * 
+   * @param frequency
+   *          The requested frequency in Hz, typically a device's maximum rated
+   *          clock.
+   * 
+   * @return The closest achievable frequency at or below the requested one.
+   * 
+   * @throws IllegalArgumentException
+   *           If the frequency is below the slowest rate the SPI can produce.
+   */
+  public static SPIFrequency of(final int frequency) {
+    // the slowest rate is fractional, rounded up so it is never exceeded
+    final int slowest = (CORE_CLOCK_FREQUENCY + MAX_DIVISOR - 1) / MAX_DIVISOR;
+    if (frequency < slowest) {
+      throw new IllegalArgumentException(MessageFormat.format(
+          "Frequency out of range. Received {0}Hz, min {1}Hz.", frequency, slowest));
+    }
+    // smallest divisor which doesn't exceed the frequency, rounded up to even
+    int divisor = (CORE_CLOCK_FREQUENCY + frequency - 1) / frequency;
+    divisor += divisor & 1;
+    return ofDivisor(Math.max(MIN_DIVISOR, divisor));
+  }
+
+  /**
+   * Creates the frequency produced by a divisor.
+   * 
+   * @param divisor
+   *          The divisor, must be even and between {@link #MIN_DIVISOR} and
+   *          {@link #MAX_DIVISOR}.
+   * 
+   * @return The frequency produced by the divisor.
+   * 
+   * @throws IllegalArgumentException
+   *           If the divisor is odd or out of range.
+   */
+  public static SPIFrequency ofDivisor(final int divisor) {
+    if (divisor < MIN_DIVISOR || divisor > MAX_DIVISOR || (divisor & 1) != 0) {
+      throw new IllegalArgumentException(MessageFormat.format(
+          "Divisor must be even and in range. Received {0}, min {1}, max {2}.", divisor, MIN_DIVISOR,
+          MAX_DIVISOR));
+    }
+    return new SPIFrequency(divisor, divisor == MAX_DIVISOR ? 0 : divisor);
+  }
+
+  /**
+   * Creates the frequency produced by one of the power of two divisors.
+   * 
+   * @param divisor
+   *          The divisor.
+   * 
+   * @return The frequency produced by the divisor.
+   */
+  public static SPIFrequency of(final SPIDivisor divisor) {
+    return new SPIFrequency(divisor.value == 0 ? MAX_DIVISOR : divisor.value, divisor.value);
+  }
+
+  @Override
+  public String toString() {
+    return frequency + "Hz (core/" + divisor + ")";
+  }
+
+}
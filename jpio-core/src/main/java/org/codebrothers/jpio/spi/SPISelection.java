@@ -0,0 +1,34 @@
+package org.codebrothers.jpio.spi;
+
+/**
+ * The SPI0 register values and GPIO chip select last applied to a board by
+ * {@link SPI#select(org.codebrothers.jpio.JPIOContext, SPIDevice)}, held by
+ * the board's {@link org.codebrothers.jpio.JPIOContext} so that each board
+ * remembers its own selection.
+ */
+public class SPISelection {
+
+  /*
+   * Marks the applied register values as unknown, none of the real values can
+   * have every bit set.
+   */
+  static final int UNKNOWN = -1;
+
+  /*
+   * The control/status and divisor register values applied by the last call to
+   * select(), so switching devices only writes the registers which differ.
+   * Reset to UNKNOWN whenever the registers are modified any other way.
+   */
+  int selectedControl = UNKNOWN;
+  int selectedDivisor = UNKNOWN;
+
+  /*
+   * The GPIO chip select of the selected device, as the GPSET/GPCLR register
+   * offsets and pin value which assert and de-assert it. A register of UNKNOWN
+   * means the hardware chip select is in use.
+   */
+  int chipSelectAssertRegister = UNKNOWN;
+  int chipSelectDeassertRegister = UNKNOWN;
+  int chipSelectValue;
+
+}
@@ -0,0 +1,193 @@
+package org.codebrothers.jpio.spi;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single transfer to be performed by an {@link SPIExecutor}.
+ * <p>
+ * Carries the device to talk to, the buffers to transfer and an optional
+ * {@link SPICallback}. The transaction is also a {@link Future}, which yields
+ * the receive buffer once the transfer has completed.
+ * <p>
+ * The buffers must not be touched by the submitting thread until the
+ * transaction has finished.
+ */
+public class SPITransaction implements Future<ByteBuffer> {
+
+  private static final int PENDING = 0;
+  private static final int RUNNING = 1;
+  private static final int COMPLETED = 2;
+  private static final int FAILED = 3;
+  private static final int CANCELLED = 4;
+
+  private final AtomicInteger state = new AtomicInteger(PENDING);
+
+  private final CountDownLatch done = new CountDownLatch(1);
+
+  private volatile Throwable failure;
+
+  /*
+   * The exception thrown by the callback, set by the executor.
+   */
+  volatile RuntimeException callbackFailure;
+
+  /*
+   * The device the transfer is for.
+   */
+  public final SPIDevice device;
+
+  /*
+   * The bytes to write, null to clock out zeros.
+   */
+  public final ByteBuffer tx;
+
+  /*
+   * The buffer to read into, null to discard the bytes read.
+   */
+  public final ByteBuffer rx;
+
+  /*
+   * Notified when the transaction finishes, may be null.
+   */
+  public final SPICallback callback;
+
+  /**
+   * Constructs a transaction with no callback, use the {@link Future} methods
+   * to wait for it.
+   *
+   * @param device
+   *          The device the transfer is for.
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   */
+  public SPITransaction(SPIDevice device, ByteBuffer tx, ByteBuffer rx) {
+    this(device, tx, rx, null);
+  }
+
+  /**
+   * Constructs a transaction.
+   *
+   * @param device
+   *          The device the transfer is for.
+   * @param tx
+   *          The bytes to write, or null to clock out zeros.
+   * @param rx
+   *          The buffer to read into, or null to discard the bytes read.
+   * @param callback
+   *          Notified when the transaction finishes, may be null.
+   *
+   * @throws IllegalArgumentException
+   *           If neither buffer is given.
+   */
+  public SPITransaction(SPIDevice device, ByteBuffer tx, ByteBuffer rx, SPICallback callback) {
+    if (tx == null && rx == null) {
+      throw new IllegalArgumentException("At least one of tx or rx must be given.");
+    }
+    this.device = device;
+    this.tx = tx;
+    this.rx = rx;
+    this.callback = callback;
+  }
+
+  /**
+   * Cancels the transaction if the executor has not yet started it.
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (state.compareAndSet(PENDING, CANCELLED)) {
+      done.countDown();
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return state.get() == CANCELLED;
+  }
+
+  @Override
+  public boolean isDone() {
+    return state.get() > RUNNING;
+  }
+
+  @Override
+  public ByteBuffer get() throws InterruptedException, ExecutionException {
+    done.await();
+    return result();
+  }
+
+  @Override
+  public ByteBuffer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+      TimeoutException {
+    if (!done.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return result();
+  }
+
+  /**
+   * The exception thrown by the callback when it was notified, if any. The
+   * transaction's own outcome is unaffected by its callback failing.
+   * 
+   * @return The exception, or null if the callback returned normally or
+   *         hasn't been notified yet.
+   */
+  public RuntimeException getCallbackFailure() {
+    return callbackFailure;
+  }
+
+  /*
+   * Moves the transaction to running, fails if it has been cancelled.
+   */
+  boolean start() {
+    return state.compareAndSet(PENDING, RUNNING);
+  }
+
+  /*
+   * Marks the transaction complete and notifies the callback.
+   */
+  void complete() {
+    state.set(COMPLETED);
+    done.countDown();
+    if (callback != null) {
+      callback.completed(this);
+    }
+  }
+
+  /*
+   * Marks the transaction failed and notifies the callback.
+   */
+  void fail(Throwable cause) {
+    failure = cause;
+    state.set(FAILED);
+    done.countDown();
+    if (callback != null) {
+      callback.failed(this, cause);
+    }
+  }
+
+  /*
+   * Returns the receive buffer, or throws the reason it is unavailable.
+   */
+  private ByteBuffer result() throws ExecutionException {
+    switch (state.get()) {
+    case CANCELLED:
+      throw new CancellationException();
+    case FAILED:
+      throw new ExecutionException(failure);
+    default:
+      return rx;
+    }
+  }
+
+}
@@ -0,0 +1,269 @@
+package org.codebrothers.jpio.spi;
+
+import static org.codebrothers.jpio.JPIO.GPIO;
+import static org.codebrothers.jpio.util.DelayUtil.delayNs;
+
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.gpio.Function;
+import org.codebrothers.jpio.gpio.GPIOPin;
+
+/**
+ * A bit banged SPI master, which can run on any three GPIO pins.
+ * <p>
+ * Useful when a second SPI bus is needed, or when the hardware SPI's pins are
+ * in use. Supports all four {@link SPIDataMode}s, bytes are sent most
+ * significant bit first.
+ * <p>
+ * The GPSET/GPCLR registers and pin values for each clock edge and data level
+ * are precomputed when a device is selected, so each bit costs a store per
+ * clock edge, a store for the output bit and a single GPLEV read for the input
+ * bit. The buffer transfers do not allocate.
+ * <p>
+ * Devices rated at 1MHz or more are clocked as fast as the pins can be driven.
+ * Slower devices have each half clock period padded out to their rated speed.
+ * Devices must use a GPIO pin as their chip select, or none at all. The SPI's
+ * chip select lines are not available to a bit banged bus.
+ */
+public class SoftSPI implements SPIBus {
+
+  /*
+   * Half periods this short or shorter are not padded, the GPIO stores take
+   * longer. 1MHz devices are the slowest to run unpadded.
+   */
+  private static final int MIN_HALF_PERIOD_NS = 500;
+
+  private static final int NONE = -1;
+
+  private final GPIOPin clock;
+  private final GPIOPin mosi;
+  private final GPIOPin miso;
+
+  // clock registers, for the leading and trailing edges of each bit
+  private int leadingEdgeRegister;
+  private int trailingEdgeRegister;
+  private final int clockValue;
+
+  // data out registers
+  private final int mosiSetRegister;
+  private final int mosiClearRegister;
+  private final int mosiValue;
+
+  // data in register
+  private final int misoLevelRegister;
+  private final int misoValue;
+
+  // true if data is sampled on the leading edge (CPHA = 0)
+  private boolean sampleOnLeadingEdge = true;
+
+  // time to pad each half clock period by
+  private long halfPeriodNs;
+
+  // the selected device's GPIO chip select
+  private int chipSelectAssertRegister = NONE;
+  private int chipSelectDeassertRegister = NONE;
+  private int chipSelectValue;
+
+  /**
+   * Constructs the bus on the specified pins, in {@link SPIDataMode#MODE0}
+   * until a device is selected.
+   *
+   * @param clock
+   *          The clock (SCLK) pin.
+   * @param mosi
+   *          The data out (MOSI) pin.
+   * @param miso
+   *          The data in (MISO) pin.
+   */
+  public SoftSPI(final GPIOPin clock, final GPIOPin mosi, final GPIOPin miso) {
+    this.clock = clock;
+    this.mosi = mosi;
+    this.miso = miso;
+    this.clockValue = clock.pinValue;
+    this.mosiSetRegister = mosi.setRegister;
+    this.mosiClearRegister = mosi.clearRegister;
+    this.mosiValue = mosi.pinValue;
+    this.misoLevelRegister = miso.levelRegister;
+    this.misoValue = miso.pinValue;
+    setDataMode(SPIDataMode.MODE0);
+  }
+
+  /**
+   * Configures the clock and data out pins as outputs and the data in pin as
+   * an input. The clock is put into its rest state.
+   */
+  @Override
+  public void enter() {
+    GPIO.putOrdered(trailingEdgeRegister, clockValue);
+    clock.setFunction(Function.OUTPUT);
+    mosi.setFunction(Function.OUTPUT);
+    miso.setFunction(Function.INPUT);
+  }
+
+  @Override
+  public void exit() {
+    clock.setFunction(Function.INPUT);
+    mosi.setFunction(Function.INPUT);
+    miso.setFunction(Function.INPUT);
+  }
+
+  /**
+   * Configures the bus for the device's data mode, speed and chip select.
+   *
+   * @param device
+   *          The device to select.
+   *
+   * @throws IllegalArgumentException
+   *           If the device uses one of the hardware SPI's chip select lines.
+   */
+  @Override
+  public void select(SPIDevice device) {
+    if (device.chipSelectPin == null && device.chipSelect != SPIChipSelect.NONE) {
+      throw new IllegalArgumentException("A bit banged bus cannot drive the hardware chip select "
+          + device.chipSelect + ", the device must use a GPIO chip select.");
+    }
+    setDataMode(device.dataMode);
+    final long halfPeriodNs = 500000000L / device.frequency.frequency;
+    this.halfPeriodNs = halfPeriodNs <= MIN_HALF_PERIOD_NS ? 0 : halfPeriodNs;
+    if (device.chipSelectPin == null) {
+      chipSelectAssertRegister = NONE;
+      chipSelectDeassertRegister = NONE;
+    } else {
+      chipSelectAssertRegister = device.chipSelectAssertRegister;
+      chipSelectDeassertRegister = device.chipSelectDeassertRegister;
+      chipSelectValue = device.chipSelectPin.pinValue;
+    }
+    // put the clock into its rest state
+    GPIO.putOrdered(trailingEdgeRegister, clockValue);
+  }
+
+  @Override
+  public byte transfer(byte value) {
+    assertChipSelect();
+    try {
+      return (byte) transferByte(value);
+    } finally {
+      deassertChipSelect();
+    }
+  }
+
+  @Override
+  public int transfer(ByteBuffer tx, ByteBuffer rx) {
+    final int length;
+    if (tx == null && rx == null) {
+      throw new IllegalArgumentException("At least one of tx or rx must be given.");
+    } else if (tx == null) {
+      length = rx.remaining();
+    } else if (rx == null) {
+      length = tx.remaining();
+    } else {
+      length = Math.min(tx.remaining(), rx.remaining());
+    }
+    assertChipSelect();
+    try {
+      transferActive(tx, rx, length);
+    } finally {
+      deassertChipSelect();
+    }
+    return length;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) {
+    long written = 0;
+    assertChipSelect();
+    try {
+      for (int i = offset; i < offset + length; i++) {
+        final int remaining = srcs[i].remaining();
+        transferActive(srcs[i], null, remaining);
+        written += remaining;
+      }
+    } finally {
+      deassertChipSelect();
+    }
+    return written;
+  }
+
+  /*
+   * Precomputes the clock edges for the data mode.
+   */
+  private void setDataMode(final SPIDataMode dataMode) {
+    final boolean restHigh = dataMode == SPIDataMode.MODE2 || dataMode == SPIDataMode.MODE3;
+    leadingEdgeRegister = restHigh ? clock.clearRegister : clock.setRegister;
+    trailingEdgeRegister = restHigh ? clock.setRegister : clock.clearRegister;
+    sampleOnLeadingEdge = dataMode == SPIDataMode.MODE0 || dataMode == SPIDataMode.MODE2;
+  }
+
+  /*
+   * Transfers length bytes between the buffers, advancing their positions.
+   */
+  private void transferActive(final ByteBuffer tx, final ByteBuffer rx, final int length) {
+    final int txPosition = tx == null ? 0 : tx.position();
+    final int rxPosition = rx == null ? 0 : rx.position();
+    for (int i = 0; i < length; i++) {
+      final int read = transferByte(tx == null ? 0 : tx.get(txPosition + i));
+      if (rx != null) {
+        rx.put(rxPosition + i, (byte) read);
+      }
+    }
+    if (tx != null) {
+      tx.position(txPosition + length);
+    }
+    if (rx != null) {
+      rx.position(rxPosition + length);
+    }
+  }
+
+  /*
+   * Clocks a byte out and in, most significant bit first.
+   */
+  private int transferByte(final int value) {
+    int read = 0;
+    for (int bit = 0x80; bit != 0; bit >>>= 1) {
+      if (sampleOnLeadingEdge) {
+        // CPHA = 0: data out before the leading edge, sampled on it
+        GPIO.putOrdered((value & bit) != 0 ? mosiSetRegister : mosiClearRegister, mosiValue);
+        pad();
+        GPIO.putOrdered(leadingEdgeRegister, clockValue);
+        if ((GPIO.get(misoLevelRegister) & misoValue) != 0) {
+          read |= bit;
+        }
+        pad();
+        GPIO.putOrdered(trailingEdgeRegister, clockValue);
+      } else {
+        // CPHA = 1: data out on the leading edge, sampled on the trailing edge
+        GPIO.putOrdered(leadingEdgeRegister, clockValue);
+        GPIO.putOrdered((value & bit) != 0 ? mosiSetRegister : mosiClearRegister, mosiValue);
+        pad();
+        GPIO.putOrdered(trailingEdgeRegister, clockValue);
+        if ((GPIO.get(misoLevelRegister) & misoValue) != 0) {
+          read |= bit;
+        }
+        pad();
+      }
+    }
+    return read;
+  }
+
+  /*
+   * Pads out a half clock period for slow devices.
+   */
+  private void pad() {
+    if (halfPeriodNs != 0) {
+      delayNs(halfPeriodNs);
+    }
+  }
+
+  private void assertChipSelect() {
+    if (chipSelectAssertRegister != NONE) {
+      GPIO.putOrdered(chipSelectAssertRegister, chipSelectValue);
+    }
+  }
+
+  private void deassertChipSelect() {
+    if (chipSelectDeassertRegister != NONE) {
+      GPIO.putOrdered(chipSelectDeassertRegister, chipSelectValue);
+    }
+  }
+
+}
@@ -0,0 +1,20 @@
+package org.codebrothers.jpio.trace;
+
+/**
+ * The register banks a trace can record, in the order their ordinals are
+ * stored in a trace.
+ */
+public enum Peripheral {
+
+  GPIO, CLOCK, PWM, SPI0;
+
+  private static final Peripheral[] VALUES = values();
+
+  static Peripheral valueOf(int ordinal) {
+    if (ordinal < 0 || ordinal >= VALUES.length) {
+      throw new IllegalArgumentException("Unknown peripheral " + ordinal + ".");
+    }
+    return VALUES[ordinal];
+  }
+
+}
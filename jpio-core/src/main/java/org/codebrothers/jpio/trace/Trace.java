@@ -0,0 +1,261 @@
+package org.codebrothers.jpio.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.register.RegisterBank;
+
+/**
+ * A trace read back from a dump written by {@link TraceRecorder}, which can be
+ * inspected or replayed against a set of banks, such as those of
+ * {@link JPIO#initDebug()}. A trace taken from a misbehaving or slow device
+ * becomes a workload which can be rerun and timed anywhere.
+ */
+public final class Trace {
+
+  private final long[] times;
+  private final int[] values;
+  private final int[] masks;
+  private final short[] offsets;
+  private final byte[] peripherals;
+  private final byte[] ops;
+
+  private Trace(int size) {
+    this.times = new long[size];
+    this.values = new int[size];
+    this.masks = new int[size];
+    this.offsets = new short[size];
+    this.peripherals = new byte[size];
+    this.ops = new byte[size];
+  }
+
+  /**
+   * Reads a trace from a file.
+   *
+   * @param file
+   *          The file written by {@link TraceRecorder#dump(File)}.
+   *
+   * @return The trace.
+   *
+   * @throws IOException
+   *           If the file can't be read or isn't a trace.
+   */
+  public static Trace read(File file) throws IOException {
+    final InputStream in = new FileInputStream(file);
+    try {
+      return read(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads a trace from a stream, which is not closed.
+   *
+   * @param stream
+   *          The stream written to by {@link TraceRecorder#dump(java.io.OutputStream)}.
+   *
+   * @return The trace.
+   *
+   * @throws IOException
+   *           If the stream can't be read or isn't a trace.
+   */
+  public static Trace read(InputStream stream) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != TraceRecorder.MAGIC) {
+      throw new IOException("Not a trace, the magic number doesn't match.");
+    }
+    final int version = in.readUnsignedShort();
+    final int recordSize = in.readUnsignedShort();
+    if (version != TraceRecorder.VERSION || recordSize != TraceRecorder.RECORD_SIZE) {
+      throw new IOException("Unsupported trace version " + version + " with " + recordSize + " byte records.");
+    }
+    final int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("Corrupt trace, record count " + size + ".");
+    }
+    final Trace trace = new Trace(size);
+    for (int i = 0; i < size; i++) {
+      trace.times[i] = in.readLong();
+      trace.values[i] = in.readInt();
+      trace.masks[i] = in.readInt();
+      trace.offsets[i] = in.readShort();
+      trace.peripherals[i] = in.readByte();
+      trace.ops[i] = in.readByte();
+    }
+    return trace;
+  }
+
+  /**
+   * The number of records in the trace.
+   *
+   * @return The number of records.
+   */
+  public int size() {
+    return times.length;
+  }
+
+  /**
+   * The time a record was taken, from {@link System#nanoTime()} on the
+   * recording machine.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getTime(int record) {
+    return times[record];
+  }
+
+  /**
+   * The peripheral a record accessed.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The peripheral.
+   */
+  public Peripheral getPeripheral(int record) {
+    return Peripheral.valueOf(peripherals[record]);
+  }
+
+  /**
+   * The operation a record performed.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The operation.
+   */
+  public TraceOp getOp(int record) {
+    return TraceOp.valueOf(ops[record]);
+  }
+
+  /**
+   * The register offset a record accessed.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The offset.
+   */
+  public int getOffset(int record) {
+    return offsets[record] & 0xFFFF;
+  }
+
+  /**
+   * The value a record read or wrote, or the bits it tested or set.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The value.
+   */
+  public int getValue(int record) {
+    return values[record];
+  }
+
+  /**
+   * The mask a record used, 0 if its operation has none.
+   *
+   * @param record
+   *          The index of the record.
+   *
+   * @return The mask.
+   */
+  public int getMask(int record) {
+    return masks[record];
+  }
+
+  /**
+   * Replays the trace as fast as possible against the banks JPIO is
+   * configured with.
+   *
+   * @return The time taken in nanoseconds.
+   */
+  public long replay() {
+    return replay(false, JPIO.GPIO, JPIO.CLOCK, JPIO.PWM, JPIO.SPI0);
+  }
+
+  /**
+   * Replays the trace against a set of banks, performing the recorded
+   * operation for each record. Reads are performed and their results
+   * discarded, so polling loops replay the number of polls recorded rather
+   * than waiting on the banks.
+   *
+   * @param paced
+   *          true to keep the recorded gaps between accesses, false to replay
+   *          as fast as possible.
+   * @param banks
+   *          The banks to replay against, in {@link Peripheral} order.
+   *
+   * @return The time taken in nanoseconds.
+   */
+  public long replay(boolean paced, RegisterBank... banks) {
+    // check up front, banks don't all check their indices
+    for (int i = 0; i < times.length; i++) {
+      final int peripheral = peripherals[i];
+      final RegisterBank bank = peripheral >= 0 && peripheral < banks.length ? banks[peripheral] : null;
+      // also rejects unknown ops before anything is replayed
+      getOp(i);
+      if (bank == null) {
+        throw new IllegalArgumentException("No bank for " + getPeripheral(i) + " at record " + i + ".");
+      }
+      if (getOffset(i) >= bank.size()) {
+        throw new IllegalArgumentException("Offset " + getOffset(i) + " at record " + i + " is outside the "
+            + getPeripheral(i) + " bank of " + bank.size() + " registers.");
+      }
+    }
+    final long start = System.nanoTime();
+    for (int i = 0; i < times.length; i++) {
+      if (paced) {
+        final long due = start + times[i] - times[0];
+        while (System.nanoTime() - due < 0) {
+          // spin, the gaps are often shorter than a sleep
+        }
+      }
+      final RegisterBank bank = banks[peripherals[i]];
+      final int offset = getOffset(i);
+      switch (getOp(i)) {
+      case GET:
+        bank.get(offset);
+        break;
+      case PUT:
+        bank.put(offset, values[i]);
+        break;
+      case PUT_ORDERED:
+        bank.putOrdered(offset, values[i]);
+        break;
+      case PUT_RELEASE:
+        bank.putRelease(offset, values[i]);
+        break;
+      case FENCE:
+        bank.fence();
+        break;
+      case SET_BITS:
+        bank.setBits(offset, values[i]);
+        break;
+      case CLEAR_MASK:
+        bank.clearMask(offset, masks[i]);
+        break;
+      case SET_MASKED_VALUE:
+        bank.setMaskedValue(offset, masks[i], values[i]);
+        break;
+      case IS_BIT_SET:
+        bank.isBitSet(offset, values[i]);
+        break;
+      case IS_BIT_CLEAR:
+        bank.isBitClear(offset, values[i]);
+        break;
+      }
+    }
+    return System.nanoTime() - start;
+  }
+
+}
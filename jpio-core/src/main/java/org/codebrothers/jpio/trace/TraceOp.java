@@ -0,0 +1,20 @@
+package org.codebrothers.jpio.trace;
+
+/**
+ * The register bank operations a trace can record, in the order their
+ * ordinals are stored in a trace.
+ */
+public enum TraceOp {
+
+  GET, PUT, PUT_ORDERED, PUT_RELEASE, FENCE, SET_BITS, CLEAR_MASK, SET_MASKED_VALUE, IS_BIT_SET, IS_BIT_CLEAR;
+
+  private static final TraceOp[] VALUES = values();
+
+  static TraceOp valueOf(int ordinal) {
+    if (ordinal < 0 || ordinal >= VALUES.length) {
+      throw new IllegalArgumentException("Unknown trace op " + ordinal + ".");
+    }
+    return VALUES[ordinal];
+  }
+
+}
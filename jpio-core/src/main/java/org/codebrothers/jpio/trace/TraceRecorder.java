@@ -0,0 +1,207 @@
+package org.codebrothers.jpio.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records register accesses into a ring buffer allocated off the heap up
+ * front, so recording never allocates or triggers a collection. Once the ring
+ * is full the oldest records are overwritten.
+ * <p>
+ * Each record holds the time of the access from {@link System#nanoTime()},
+ * the peripheral, operation, register offset and the value and mask involved.
+ * Recording starts disabled, whilst disabled a traced access costs a single
+ * volatile read.
+ * <p>
+ * A recorder can be shared by several {@link TracingRegisterBank}s and
+ * threads. The ring should be stopped before it is dumped, records written
+ * during a dump may be torn.
+ */
+public final class TraceRecorder {
+
+  /*
+   * Identifies a trace file, "JPTR".
+   */
+  static final int MAGIC = 0x4A505452;
+
+  static final int VERSION = 1;
+
+  /*
+   * The size of a record: time (8), value (4), mask (4), offset (2),
+   * peripheral (1) and op (1).
+   */
+  static final int RECORD_SIZE = 20;
+
+  private final ByteBuffer ring;
+
+  private final int capacity;
+
+  /*
+   * capacity - 1, the capacity is a power of two.
+   */
+  private final int indexMask;
+
+  /*
+   * The number of records ever written, the next record's sequence.
+   */
+  private final AtomicLong sequence = new AtomicLong();
+
+  private volatile boolean enabled;
+
+  /**
+   * Constructs a stopped recorder.
+   *
+   * @param capacity
+   *          The number of records the ring holds, must be a power of two.
+   */
+  public TraceRecorder(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1 || capacity > Integer.MAX_VALUE / RECORD_SIZE) {
+      throw new IllegalArgumentException("Capacity must be a power of two, no more than "
+          + Integer.highestOneBit(Integer.MAX_VALUE / RECORD_SIZE) + ". Received " + capacity + ".");
+    }
+    this.capacity = capacity;
+    this.indexMask = capacity - 1;
+    this.ring = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Starts recording.
+   */
+  public void start() {
+    enabled = true;
+  }
+
+  /**
+   * Stops recording, the ring is kept.
+   */
+  public void stop() {
+    enabled = false;
+  }
+
+  /**
+   * Checks whether accesses are being recorded.
+   *
+   * @return true if recording.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Discards every record.
+   */
+  public void clear() {
+    sequence.set(0);
+  }
+
+  /**
+   * The number of records the ring holds.
+   *
+   * @return The capacity.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * The number of records written since the recorder was created or cleared,
+   * including any which have since been overwritten.
+   *
+   * @return The number of records.
+   */
+  public long getRecorded() {
+    return sequence.get();
+  }
+
+  /**
+   * Writes a record into the ring, regardless of whether recording is
+   * enabled.
+   *
+   * @param peripheral
+   *          The peripheral accessed.
+   * @param op
+   *          The operation performed.
+   * @param offset
+   *          The offset of the register.
+   * @param value
+   *          The value read or written, or the bits tested or set.
+   * @param mask
+   *          The mask used, or 0 if the operation has none.
+   */
+  public void record(final Peripheral peripheral, final TraceOp op, final int offset, final int value,
+      final int mask) {
+    final int position = (int) (sequence.getAndIncrement() & indexMask) * RECORD_SIZE;
+    ring.putLong(position, System.nanoTime());
+    ring.putInt(position + 8, value);
+    ring.putInt(position + 12, mask);
+    ring.putShort(position + 16, (short) offset);
+    ring.put(position + 18, (byte) peripheral.ordinal());
+    ring.put(position + 19, (byte) op.ordinal());
+  }
+
+  /**
+   * Dumps the records held in the ring, oldest first, to a file. See
+   * {@link #dump(OutputStream)} for the format.
+   *
+   * @param file
+   *          The file to write.
+   *
+   * @return The number of records dumped.
+   *
+   * @throws IOException
+   *           If the file can't be written.
+   */
+  public int dump(File file) throws IOException {
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      return dump(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Dumps the records held in the ring, oldest first. The format is big
+   * endian: the magic number 0x4A505452, a short version, a short record size
+   * and an int record count, followed by the records. Each record is a long
+   * time, int value, int mask, short offset, byte peripheral and byte op.
+   * <p>
+   * The stream is flushed but not closed.
+   *
+   * @param stream
+   *          The stream to write to.
+   *
+   * @return The number of records dumped.
+   *
+   * @throws IOException
+   *           If the stream can't be written.
+   */
+  public int dump(OutputStream stream) throws IOException {
+    final long recorded = sequence.get();
+    final int count = (int) Math.min(recorded, capacity);
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeShort(RECORD_SIZE);
+    out.writeInt(count);
+    for (long i = recorded - count; i < recorded; i++) {
+      final int position = (int) (i & indexMask) * RECORD_SIZE;
+      out.writeLong(ring.getLong(position));
+      out.writeInt(ring.getInt(position + 8));
+      out.writeInt(ring.getInt(position + 12));
+      out.writeShort(ring.getShort(position + 16));
+      out.writeByte(ring.get(position + 18));
+      out.writeByte(ring.get(position + 19));
+    }
+    out.flush();
+    return count;
+  }
+
+}
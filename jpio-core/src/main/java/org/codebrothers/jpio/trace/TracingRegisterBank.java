@@ -0,0 +1,132 @@
+package org.codebrothers.jpio.trace;
+
+import org.codebrothers.jpio.register.RegisterBank;
+
+/**
+ * Wraps a bank, recording every access made through it to a
+ * {@link TraceRecorder} whilst the recorder is enabled. Each access is
+ * performed first and recorded after, so the recorded time is when it
+ * completed.
+ */
+public class TracingRegisterBank implements RegisterBank {
+
+  private final RegisterBank bank;
+
+  private final Peripheral peripheral;
+
+  private final TraceRecorder recorder;
+
+  /**
+   * Constructs a tracing bank.
+   *
+   * @param bank
+   *          The bank to trace.
+   * @param peripheral
+   *          The peripheral the bank holds, stored with each record.
+   * @param recorder
+   *          The recorder to record to.
+   */
+  public TracingRegisterBank(RegisterBank bank, Peripheral peripheral, TraceRecorder recorder) {
+    this.bank = bank;
+    this.peripheral = peripheral;
+    this.recorder = recorder;
+  }
+
+  /**
+   * The bank being traced.
+   *
+   * @return The bank.
+   */
+  public RegisterBank getBank() {
+    return bank;
+  }
+
+  @Override
+  public int size() {
+    return bank.size();
+  }
+
+  @Override
+  public int get(final int index) {
+    final int value = bank.get(index);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.GET, index, value, 0);
+    }
+    return value;
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    bank.put(index, value);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.PUT, index, value, 0);
+    }
+  }
+
+  @Override
+  public void putOrdered(final int index, final int value) {
+    bank.putOrdered(index, value);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.PUT_ORDERED, index, value, 0);
+    }
+  }
+
+  @Override
+  public void putRelease(final int index, final int value) {
+    bank.putRelease(index, value);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.PUT_RELEASE, index, value, 0);
+    }
+  }
+
+  @Override
+  public void fence() {
+    bank.fence();
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.FENCE, 0, 0, 0);
+    }
+  }
+
+  @Override
+  public void setBits(final int index, final int value) {
+    bank.setBits(index, value);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.SET_BITS, index, value, 0);
+    }
+  }
+
+  @Override
+  public void clearMask(final int index, final int mask) {
+    bank.clearMask(index, mask);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.CLEAR_MASK, index, 0, mask);
+    }
+  }
+
+  @Override
+  public void setMaskedValue(final int index, final int mask, final int value) {
+    bank.setMaskedValue(index, mask, value);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.SET_MASKED_VALUE, index, value, mask);
+    }
+  }
+
+  @Override
+  public boolean isBitSet(final int index, final int bit) {
+    final boolean set = bank.isBitSet(index, bit);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.IS_BIT_SET, index, bit, 0);
+    }
+    return set;
+  }
+
+  @Override
+  public boolean isBitClear(final int index, final int bit) {
+    final boolean clear = bank.isBitClear(index, bit);
+    if (recorder.isEnabled()) {
+      recorder.record(peripheral, TraceOp.IS_BIT_CLEAR, index, bit, 0);
+    }
+    return clear;
+  }
+
+}
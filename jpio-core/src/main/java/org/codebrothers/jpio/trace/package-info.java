@@ -0,0 +1,5 @@
+/**
+ * Records the register accesses made by the drivers, dumps them to a compact
+ * binary file and replays them against other banks.
+ */
+package org.codebrothers.jpio.trace;
@@ -2,6 +2,15 @@ package org.codebrothers.jpio.util;
 
 import java.nio.IntBuffer;
 
+import org.codebrothers.jpio.register.RegisterBank;
+
+/**
+ * Read-modify-write helpers for registers held in an IntBuffer.
+ * 
+ * @deprecated The drivers now reach the registers through a
+ *             {@link RegisterBank}, which has these operations as methods.
+ */
+@Deprecated
 public class BitUtils {
 
   /**
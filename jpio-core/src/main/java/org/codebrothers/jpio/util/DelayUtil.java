@@ -1,5 +1,7 @@
 package org.codebrothers.jpio.util;
 
+import org.codebrothers.jpio.metrics.Metrics;
+
 /**
  * Simple delay utility. Recommended usage is through static import, see
  * examples.
@@ -32,7 +34,12 @@ public class DelayUtil {
    */
   public static void delayNs(long delay) {
     final long delayUntil = System.nanoTime() + delay;
+    long spins = 0;
     while (System.nanoTime() < delayUntil) {
+      spins++;
+    }
+    if (Metrics.ENABLED) {
+      Metrics.DELAY.record(spins);
     }
   }
 
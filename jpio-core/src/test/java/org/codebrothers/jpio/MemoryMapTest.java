@@ -0,0 +1,94 @@
+package org.codebrothers.jpio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.register.RegisterBanks;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Maps an ordinary file through {@link RegisterBanks#mapped(File, long, int)}
+ * and {@link JPIO#initMapped(File, long)}, reading the register writes back
+ * from the file at the BCM2835's offsets.
+ */
+public class MemoryMapTest {
+
+  private static final long BASE = 0x1000;
+  private static final long GPIO_OFFSET = 0x200000;
+  private static final long CLOCK_OFFSET = 0x101000;
+  private static final long PWM_OFFSET = 0x20C000;
+  private static final long SPI0_OFFSET = 0x204000;
+  private static final int BLOCK_REGISTERS = 1024;
+
+  private File file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = File.createTempFile("jpio", ".mem");
+  }
+
+  @After
+  public void deleteFile() {
+    file.delete();
+  }
+
+  @Test
+  public void mappedBankWritesTheWindow() throws IOException {
+    final RegisterBank bank = RegisterBanks.mapped(file, BASE, BLOCK_REGISTERS);
+    bank.put(0, 0x12345678);
+    bank.put(BLOCK_REGISTERS - 1, 0xCAFEBABE);
+
+    assertEquals(0x12345678, readRegister(BASE));
+    assertEquals(0xCAFEBABE, readRegister(BASE + (BLOCK_REGISTERS - 1) * 4));
+    assertEquals(0, readRegister(BASE - 4));
+  }
+
+  @Test
+  public void initMappedPlacesEachBlockAtItsOffset() throws IOException {
+    JPIO.initMapped(file, BASE);
+    final JPIOContext context = JPIO.context();
+    context.gpio().put(1, 0x11);
+    context.clock().put(2, 0x22);
+    context.pwm().put(3, 0x33);
+    context.spi0().put(4, 0x44);
+
+    assertEquals(0x11, readRegister(BASE + GPIO_OFFSET + 1 * 4));
+    assertEquals(0x22, readRegister(BASE + CLOCK_OFFSET + 2 * 4));
+    assertEquals(0x33, readRegister(BASE + PWM_OFFSET + 3 * 4));
+    assertEquals(0x44, readRegister(BASE + SPI0_OFFSET + 4 * 4));
+  }
+
+  @Test
+  public void unsupportedJDKFailsWithIOException() {
+    try {
+      MemoryMap.findMap0(Object.class);
+      fail("A class without map0 was accepted.");
+    } catch (IOException e) {
+      final String message = e.getMessage();
+      assertTrue(message, message.contains("isn't supported on Java " + System.getProperty("java.version")));
+      assertTrue(message, message.contains("use the jni backend"));
+    }
+  }
+
+  /*
+   * Reads a little endian register from the file.
+   */
+  private int readRegister(long offset) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      raf.seek(offset);
+      return Integer.reverseBytes(raf.readInt());
+    } finally {
+      raf.close();
+    }
+  }
+
+}
@@ -0,0 +1,209 @@
+package org.codebrothers.jpio.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.clock.ClockSource;
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+
+/**
+ * Models the general purpose and PWM clock channels.
+ * <p>
+ * Writes are ignored unless they carry the password, and the password reads
+ * back as zero. BUSY sets as soon as a channel is enabled and, once it is
+ * disabled, stays set for a stop time while the clock finishes its last
+ * cycle, unless KILL is set. Changing a channel's source, MASH or divisor
+ * whilst it is busy glitches the real clock, such writes are still applied
+ * but are counted, see {@link #getGlitches()}.
+ * <p>
+ * BUSY is worked out from the time as the registers are read, no thread is
+ * needed.
+ */
+public class ClockSimulator extends AbstractRegisterBank {
+
+  private static final int PASSWORD = 0x5A000000;
+  private static final int PASSWORD_MASK = 0xFF000000;
+
+  /*
+   * The bits of a control register.
+   */
+  private static final int ENABLE = 1 << 4;
+  private static final int KILL = 1 << 5;
+  private static final int BUSY = 1 << 7;
+
+  /**
+   * The default time BUSY stays set after a channel is disabled.
+   */
+  public static final long DEFAULT_STOP_NANOS = 1000;
+
+  private final int[] registers = new int[Simulator.REGISTERS];
+
+  /*
+   * For each register, the control register of its channel or -1 if it isn't
+   * part of a channel.
+   */
+  private final int[] controlRegisters = new int[Simulator.REGISTERS];
+
+  /*
+   * For each register, the channel it belongs to or null.
+   */
+  private final ClockChannel[] channels = new ClockChannel[Simulator.REGISTERS];
+
+  /*
+   * Told before a channel's configuration changes.
+   */
+  private final List<Listener> listeners = new ArrayList<Listener>();
+
+  /*
+   * Whether each control register's channel is stopping, and when it stops.
+   */
+  private final boolean[] stopping = new boolean[Simulator.REGISTERS];
+  private final long[] stopsAt = new long[Simulator.REGISTERS];
+
+  private final long stopNanos;
+
+  private long glitches;
+
+  private long rejected;
+
+  /**
+   * Constructs the clocks, taking {@value #DEFAULT_STOP_NANOS}ns to stop.
+   */
+  public ClockSimulator() {
+    this(DEFAULT_STOP_NANOS);
+  }
+
+  /**
+   * Constructs the clocks.
+   *
+   * @param stopNanos
+   *          The time BUSY stays set after a channel is disabled.
+   */
+  public ClockSimulator(long stopNanos) {
+    this.stopNanos = stopNanos;
+    for (int i = 0; i < controlRegisters.length; i++) {
+      controlRegisters[i] = -1;
+    }
+    for (ClockChannel channel : ClockChannel.values()) {
+      controlRegisters[channel.controlRegister] = channel.controlRegister;
+      controlRegisters[channel.dividerRegister] = channel.controlRegister;
+      channels[channel.controlRegister] = channel;
+      channels[channel.dividerRegister] = channel;
+    }
+  }
+
+  @Override
+  public int size() {
+    return registers.length;
+  }
+
+  @Override
+  public synchronized int get(final int index) {
+    if (controlRegisters[index] == index && isBusy(index)) {
+      return registers[index] | BUSY;
+    }
+    return registers[index];
+  }
+
+  @Override
+  public synchronized void put(final int index, final int value) {
+    final int control = controlRegisters[index];
+    if (control < 0) {
+      registers[index] = value;
+      return;
+    }
+    if ((value & PASSWORD_MASK) != PASSWORD) {
+      rejected++;
+      return;
+    }
+    final int stored = value & ~(PASSWORD_MASK | BUSY);
+    final boolean busy = isBusy(control);
+    if (control == index) {
+      final int changed = registers[index] ^ stored;
+      if (busy && (changed & ~(ENABLE | KILL)) != 0) {
+        glitches++;
+      }
+      if ((stored & KILL) != 0) {
+        stopping[index] = false;
+      } else if ((registers[index] & ENABLE) != 0 && (stored & ENABLE) == 0) {
+        stopping[index] = true;
+        stopsAt[index] = System.nanoTime() + stopNanos;
+      }
+    } else if (busy && registers[index] != stored) {
+      glitches++;
+    }
+    if (registers[index] != stored) {
+      for (Listener listener : listeners) {
+        listener.clockChanging(channels[index]);
+      }
+    }
+    registers[index] = stored;
+  }
+
+  /**
+   * The frequency a channel is generating, from its source and divisor.
+   *
+   * @param channel
+   *          The channel.
+   *
+   * @return The frequency in Hz, 0 if the channel isn't enabled.
+   */
+  public synchronized double getFrequency(ClockChannel channel) {
+    final int control = registers[channel.controlRegister];
+    final int divisor = registers[channel.dividerRegister];
+    final ClockSource[] sources = ClockSource.values();
+    final int source = control & ~ClockSource.SOURCE_MASK;
+    if ((control & ENABLE) == 0 || divisor == 0 || source >= sources.length) {
+      return 0;
+    }
+    return sources[source].frequency * 4096.0 / divisor;
+  }
+
+  /**
+   * The number of writes which changed a channel's configuration whilst it was
+   * busy.
+   *
+   * @return The number of glitches.
+   */
+  public synchronized long getGlitches() {
+    return glitches;
+  }
+
+  /**
+   * The number of writes ignored for lacking the password.
+   *
+   * @return The number of writes.
+   */
+  public synchronized long getRejected() {
+    return rejected;
+  }
+
+  /*
+   * Adds a listener, told of changes whilst the clock's lock is held.
+   */
+  synchronized void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  private boolean isBusy(final int control) {
+    if ((registers[control] & ENABLE) != 0) {
+      return true;
+    }
+    if (stopping[control] && System.nanoTime() - stopsAt[control] >= 0) {
+      stopping[control] = false;
+    }
+    return stopping[control];
+  }
+
+  /*
+   * Told before a channel's source, divisor or enable changes, so a model
+   * clocked by it can catch up at the old frequency.
+   */
+  interface Listener {
+
+    void clockChanging(ClockChannel channel);
+
+  }
+
+}
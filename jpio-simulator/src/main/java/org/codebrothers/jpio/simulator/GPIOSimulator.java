@@ -0,0 +1,224 @@
+package org.codebrothers.jpio.simulator;
+
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+
+/**
+ * Models the GPIO registers.
+ * <p>
+ * Writing a pin's bit to GPSET or GPCLR drives the pin high or low, if its
+ * function is output, and the level can be read back from GPLEV. Pins which
+ * aren't outputs read the level they are driven to with
+ * {@link #drive(GPIOPin, boolean)}, or their pull if they are left floating.
+ * Pulls are set the way the datasheet describes, by writing GPPUD then
+ * clocking it into pins with GPPUDCLK.
+ * <p>
+ * Every change of level is checked against the edge detect enables, rising and
+ * falling edges (synchronous or not) are latched into GPEDS, as are pins held
+ * at a detected high or low level. GPEDS bits are cleared by writing a one.
+ * <p>
+ * Everything is evaluated as the registers are accessed, no thread is needed.
+ */
+public class GPIOSimulator extends AbstractRegisterBank {
+
+  /*
+   * Register offsets, each is the first of a pair covering pins 0 to 31 then
+   * 32 to 53.
+   */
+  private static final int GPFSEL5 = 5;
+  private static final int GPSET0 = 7;
+  private static final int GPCLR0 = 10;
+  private static final int GPLEV0 = 13;
+  private static final int GPEDS0 = 16;
+  private static final int GPREN0 = 19;
+  private static final int GPFEN0 = 22;
+  private static final int GPHEN0 = 25;
+  private static final int GPLEN0 = 28;
+  private static final int GPAREN0 = 31;
+  private static final int GPAFEN0 = 34;
+  private static final int GPPUD = 37;
+  private static final int GPPUDCLK0 = 38;
+
+  /*
+   * The function selected by 0b001 in GPFSEL.
+   */
+  private static final int FUNCTION_OUTPUT = 1;
+
+  private static final int PINS = 54;
+
+  private static final long PIN_MASK = (1L << PINS) - 1;
+
+  /*
+   * The plain registers, function selects, detect enables and GPPUD.
+   */
+  private final int[] registers = new int[Simulator.REGISTERS];
+
+  /*
+   * Pin bitmaps, bit n is GPIO n.
+   */
+  private long outputPins;
+  private long outputs;
+  private long driven;
+  private long inputs;
+  private long pullUps;
+  private long levels;
+  private long events;
+
+  @Override
+  public int size() {
+    return registers.length;
+  }
+
+  @Override
+  public synchronized int get(final int index) {
+    switch (index) {
+    case GPLEV0:
+    case GPLEV0 + 1:
+      return word(levels, index - GPLEV0);
+    case GPEDS0:
+    case GPEDS0 + 1:
+      return word(events, index - GPEDS0);
+    case GPSET0:
+    case GPSET0 + 1:
+    case GPCLR0:
+    case GPCLR0 + 1:
+      // write only
+      return 0;
+    default:
+      return registers[index];
+    }
+  }
+
+  @Override
+  public synchronized void put(final int index, final int value) {
+    switch (index) {
+    case GPSET0:
+    case GPSET0 + 1:
+      outputs |= pins(value, index - GPSET0);
+      break;
+    case GPCLR0:
+    case GPCLR0 + 1:
+      outputs &= ~pins(value, index - GPCLR0);
+      break;
+    case GPEDS0:
+    case GPEDS0 + 1:
+      events &= ~pins(value, index - GPEDS0);
+      break;
+    case GPLEV0:
+    case GPLEV0 + 1:
+      // read only
+      return;
+    case GPPUDCLK0:
+    case GPPUDCLK0 + 1:
+      clockPull(pins(value, index - GPPUDCLK0));
+      registers[index] = value;
+      break;
+    default:
+      registers[index] = value;
+      if (index <= GPFSEL5) {
+        outputPins = outputPins();
+      }
+    }
+    update();
+  }
+
+  /**
+   * Drives a pin from outside, its level is read whenever it isn't an
+   * output.
+   *
+   * @param pin
+   *          The pin to drive.
+   * @param level
+   *          The level to drive it to.
+   */
+  public synchronized void drive(GPIOPin pin, boolean level) {
+    final long bit = 1L << pin.ordinal();
+    driven |= bit;
+    inputs = level ? inputs | bit : inputs & ~bit;
+    update();
+  }
+
+  /**
+   * Stops driving a pin, leaving it at the level of its pull.
+   *
+   * @param pin
+   *          The pin to release.
+   */
+  public synchronized void release(GPIOPin pin) {
+    driven &= ~(1L << pin.ordinal());
+    update();
+  }
+
+  /**
+   * Reads a pin's level, as GPLEV would.
+   *
+   * @param pin
+   *          The pin to read.
+   *
+   * @return true if the pin is high.
+   */
+  public synchronized boolean isHigh(GPIOPin pin) {
+    return (levels & 1L << pin.ordinal()) != 0;
+  }
+
+  /**
+   * Reads every pin's level.
+   *
+   * @return The levels, bit n is GPIO n.
+   */
+  public synchronized long getLevels() {
+    return levels;
+  }
+
+  /*
+   * Applies GPPUD to the clocked pins: 0 is off, 1 down and 2 up. Off leaves
+   * the pin floating, which reads low.
+   */
+  private void clockPull(final long clocked) {
+    if (registers[GPPUD] == 2) {
+      pullUps |= clocked;
+    } else {
+      pullUps &= ~clocked;
+    }
+  }
+
+  /*
+   * Recomputes the levels, latching any detected events.
+   */
+  private void update() {
+    final long inputLevels = (driven & inputs) | (~driven & pullUps);
+    final long updated = ((outputs & outputPins) | (inputLevels & ~outputPins)) & PIN_MASK;
+    final long rising = updated & ~levels;
+    final long falling = levels & ~updated;
+    events |= rising & (pair(GPREN0) | pair(GPAREN0));
+    events |= falling & (pair(GPFEN0) | pair(GPAFEN0));
+    events |= (updated & pair(GPHEN0)) | (~updated & pair(GPLEN0) & PIN_MASK);
+    levels = updated;
+  }
+
+  /*
+   * The pins whose function select is output, 10 pins of 3 bits per register.
+   */
+  private long outputPins() {
+    long pins = 0;
+    for (int pin = 0; pin < PINS; pin++) {
+      if ((registers[pin / 10] >>> (pin % 10 * 3) & 0b111) == FUNCTION_OUTPUT) {
+        pins |= 1L << pin;
+      }
+    }
+    return pins;
+  }
+
+  private long pair(final int index) {
+    return pins(registers[index], 0) | pins(registers[index + 1], 1);
+  }
+
+  private static long pins(final int value, final int word) {
+    return (value & 0xFFFFFFFFL) << (word * 32);
+  }
+
+  private static int word(final long pins, final int word) {
+    return (int) (pins >>> (word * 32));
+  }
+
+}
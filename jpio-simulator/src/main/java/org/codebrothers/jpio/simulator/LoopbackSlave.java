@@ -0,0 +1,23 @@
+package org.codebrothers.jpio.simulator;
+
+/**
+ * Models MOSI wired to MISO, every byte written is read straight back.
+ */
+public class LoopbackSlave implements SPISlave {
+
+  @Override
+  public void select(int chipSelect) {
+    // nothing to select
+  }
+
+  @Override
+  public int exchange(int value) {
+    return value;
+  }
+
+  @Override
+  public void deselect() {
+    // nothing to deselect
+  }
+
+}
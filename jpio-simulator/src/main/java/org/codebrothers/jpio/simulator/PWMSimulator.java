@@ -0,0 +1,234 @@
+package org.codebrothers.jpio.simulator;
+
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+
+/**
+ * Models the PWM registers and FIFO.
+ * <p>
+ * Words written to FIF1 are queued in an 8 word FIFO, a write to a full FIFO
+ * is dropped and sets WERR1. Whilst a channel is enabled and using the FIFO it
+ * takes one word every range cycles of the PWM clock, read from the
+ * {@link ClockSimulator}, so a PWM with no clock running never drains its
+ * FIFO, as on the hardware. Running out of words sets GAPO1. FULL1 and EMPT1
+ * are derived from the FIFO, the error bits are cleared by writing a one and
+ * CLRF1 empties the FIFO.
+ * <p>
+ * The FIFO is drained according to the time elapsed as the registers are
+ * accessed, no thread is needed. It is also drained just before the PWM clock
+ * is reconfigured, so time before the clock started or changed is counted at
+ * the frequency it was running at. The model shares the clock's lock.
+ */
+public class PWMSimulator extends AbstractRegisterBank {
+
+  private static final int CTL = 0;
+  private static final int STA = 1;
+  private static final int RNG1 = 4;
+  private static final int FIF1 = 6;
+  private static final int RNG2 = 8;
+
+  /*
+   * The bits of CTL.
+   */
+  private static final int PWEN1 = 1;
+  private static final int USEF1 = 1 << 5;
+  private static final int CLRF1 = 1 << 6;
+  private static final int PWEN2 = 1 << 8;
+  private static final int USEF2 = 1 << 13;
+
+  /*
+   * The bits of STA.
+   */
+  private static final int FULL1 = 1;
+  private static final int EMPT1 = 1 << 1;
+  private static final int WERR1 = 1 << 2;
+  private static final int GAPO1 = 1 << 4;
+  private static final int STA1 = 1 << 9;
+  private static final int STA2 = 1 << 10;
+  private static final int STICKY = WERR1 | GAPO1;
+
+  /**
+   * The number of words the FIFO holds.
+   */
+  public static final int FIFO_DEPTH = 8;
+
+  /*
+   * The range registers reset to 32.
+   */
+  private static final int RESET_RANGE = 32;
+
+  private final int[] registers = new int[Simulator.REGISTERS];
+
+  private final int[] fifo = new int[FIFO_DEPTH];
+
+  private final ClockSimulator clock;
+
+  private int head;
+
+  private int size;
+
+  private int status;
+
+  /*
+   * The time up to which the FIFO has been drained.
+   */
+  private long drainedTo = System.nanoTime();
+
+  private long wordsSent;
+
+  private int lastWord;
+
+  /**
+   * Constructs the PWM, clocked by the PWM channel of a clock.
+   *
+   * @param clock
+   *          The clock.
+   */
+  public PWMSimulator(ClockSimulator clock) {
+    this.clock = clock;
+    registers[RNG1] = RESET_RANGE;
+    registers[RNG2] = RESET_RANGE;
+    clock.addListener(new ClockSimulator.Listener() {
+      @Override
+      public void clockChanging(ClockChannel channel) {
+        if (channel == ClockChannel.PWM) {
+          drain();
+        }
+      }
+    });
+  }
+
+  @Override
+  public int size() {
+    return registers.length;
+  }
+
+  @Override
+  public int get(final int index) {
+    synchronized (clock) {
+      switch (index) {
+      case STA:
+        drain();
+        int value = status;
+        if (size == FIFO_DEPTH) {
+          value |= FULL1;
+        }
+        if (size == 0) {
+          value |= EMPT1;
+        }
+        if ((registers[CTL] & PWEN1) != 0) {
+          value |= STA1;
+        }
+        if ((registers[CTL] & PWEN2) != 0) {
+          value |= STA2;
+        }
+        return value;
+      case FIF1:
+        // write only
+        return 0;
+      default:
+        return registers[index];
+      }
+    }
+  }
+
+  @Override
+  public void put(final int index, final int value) {
+    synchronized (clock) {
+      // words already due are taken with the old settings
+      drain();
+      switch (index) {
+      case CTL:
+        if ((value & CLRF1) != 0) {
+          size = 0;
+        }
+        registers[CTL] = value & ~CLRF1;
+        break;
+      case STA:
+        status &= ~(value & STICKY);
+        break;
+      case FIF1:
+        if (size == FIFO_DEPTH) {
+          status |= WERR1;
+        } else {
+          fifo[(head + size++) % FIFO_DEPTH] = value;
+        }
+        break;
+      default:
+        registers[index] = value;
+      }
+    }
+  }
+
+  /**
+   * The number of words the channels have taken from the FIFO.
+   *
+   * @return The number of words.
+   */
+  public long getWordsSent() {
+    synchronized (clock) {
+      drain();
+      return wordsSent;
+    }
+  }
+
+  /**
+   * The last word taken from the FIFO.
+   *
+   * @return The word.
+   */
+  public int getLastWord() {
+    synchronized (clock) {
+      drain();
+      return lastWord;
+    }
+  }
+
+  /*
+   * Takes the words due since the FIFO was last drained.
+   */
+  private void drain() {
+    final long now = System.nanoTime();
+    final double period = wordNanos();
+    if (period <= 0) {
+      drainedTo = now;
+      return;
+    }
+    final long due = (long) ((now - drainedTo) / period);
+    if (due == 0) {
+      return;
+    }
+    drainedTo += (long) (due * period);
+    final int taken = (int) Math.min(due, size);
+    for (int i = 0; i < taken; i++) {
+      lastWord = fifo[head];
+      head = (head + 1) % FIFO_DEPTH;
+    }
+    size -= taken;
+    wordsSent += taken;
+    if (due > taken) {
+      status |= GAPO1;
+    }
+  }
+
+  /*
+   * The time between words taken from the FIFO, 0 if no channel is taking
+   * them. Channels both using the FIFO take words in turn.
+   */
+  private double wordNanos() {
+    final double frequency = clock.getFrequency(ClockChannel.PWM);
+    if (frequency <= 0) {
+      return 0;
+    }
+    final int control = registers[CTL];
+    double wordsPerSecond = 0;
+    if ((control & (PWEN1 | USEF1)) == (PWEN1 | USEF1) && registers[RNG1] > 0) {
+      wordsPerSecond += frequency / registers[RNG1];
+    }
+    if ((control & (PWEN2 | USEF2)) == (PWEN2 | USEF2) && registers[RNG2] > 0) {
+      wordsPerSecond += frequency / registers[RNG2];
+    }
+    return wordsPerSecond == 0 ? 0 : 1e9 / wordsPerSecond;
+  }
+
+}
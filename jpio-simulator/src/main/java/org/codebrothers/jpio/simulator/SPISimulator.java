@@ -0,0 +1,190 @@
+package org.codebrothers.jpio.simulator;
+
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+
+/**
+ * Models the SPI0 registers, exchanging bytes with an {@link SPISlave}.
+ * <p>
+ * Whilst TA is set, bytes written to the TX FIFO are exchanged with the slave
+ * and its replies queued in the RX FIFO, as long as the RX FIFO has room. A
+ * full RX FIFO stalls the transfer until it is read, as on the hardware. The
+ * status bits are derived from the FIFOs when read: TXD while the TX FIFO has
+ * room, RXD while the RX FIFO holds data, RXR when it is three quarters full,
+ * RXF when full, and DONE once TA is set and the TX FIFO is empty. The CLEAR
+ * bits empty the FIFOs and are never stored.
+ * <p>
+ * Transfers happen instantly as the registers are accessed, no thread is
+ * needed.
+ */
+public class SPISimulator extends AbstractRegisterBank {
+
+  private static final int CS = 0;
+  private static final int FIFO = 1;
+
+  /*
+   * The bits of CS.
+   */
+  private static final int CHIP_SELECT = 0b11;
+  private static final int CLEAR_TX = 1 << 4;
+  private static final int CLEAR_RX = 1 << 5;
+  private static final int TA = 1 << 7;
+  private static final int DONE = 1 << 16;
+  private static final int RXD = 1 << 17;
+  private static final int TXD = 1 << 18;
+  private static final int RXR = 1 << 19;
+  private static final int RXF = 1 << 20;
+  private static final int NOT_STORED = CLEAR_TX | CLEAR_RX | DONE | RXD | TXD | RXR | RXF;
+
+  /**
+   * The number of bytes each FIFO holds.
+   */
+  public static final int FIFO_DEPTH = 16;
+
+  private final int[] registers = new int[Simulator.REGISTERS];
+
+  private final Fifo tx = new Fifo();
+
+  private final Fifo rx = new Fifo();
+
+  private SPISlave slave;
+
+  /**
+   * Constructs the SPI, wired to a slave.
+   *
+   * @param slave
+   *          The slave on the bus.
+   */
+  public SPISimulator(SPISlave slave) {
+    this.slave = slave;
+  }
+
+  /**
+   * Replaces the slave on the bus, which takes effect for the next transfer.
+   *
+   * @param slave
+   *          The new slave.
+   */
+  public synchronized void setSlave(SPISlave slave) {
+    this.slave = slave;
+  }
+
+  @Override
+  public int size() {
+    return registers.length;
+  }
+
+  @Override
+  public synchronized int get(final int index) {
+    switch (index) {
+    case CS:
+      pump();
+      return registers[CS] | status();
+    case FIFO:
+      final int value = rx.isEmpty() ? 0 : rx.take();
+      // room has been made for any stalled bytes
+      pump();
+      return value;
+    default:
+      return registers[index];
+    }
+  }
+
+  @Override
+  public synchronized void put(final int index, final int value) {
+    switch (index) {
+    case CS:
+      if ((value & CLEAR_TX) != 0) {
+        tx.clear();
+      }
+      if ((value & CLEAR_RX) != 0) {
+        rx.clear();
+      }
+      final boolean active = (registers[CS] & TA) != 0;
+      registers[CS] = value & ~NOT_STORED;
+      if (!active && (value & TA) != 0) {
+        slave.select(value & CHIP_SELECT);
+      } else if (active && (value & TA) == 0) {
+        slave.deselect();
+      }
+      break;
+    case FIFO:
+      if (!tx.isFull()) {
+        tx.add(value & 0xFF);
+      }
+      break;
+    default:
+      registers[index] = value;
+    }
+    pump();
+  }
+
+  /*
+   * Exchanges TX bytes with the slave whilst there is room for the replies.
+   */
+  private void pump() {
+    if ((registers[CS] & TA) == 0) {
+      return;
+    }
+    while (!tx.isEmpty() && !rx.isFull()) {
+      rx.add(slave.exchange(tx.take()) & 0xFF);
+    }
+  }
+
+  private int status() {
+    int status = 0;
+    if (!tx.isFull()) {
+      status |= TXD;
+    }
+    if (!rx.isEmpty()) {
+      status |= RXD;
+    }
+    if (rx.size >= FIFO_DEPTH * 3 / 4) {
+      status |= RXR;
+    }
+    if (rx.isFull()) {
+      status |= RXF;
+    }
+    if ((registers[CS] & TA) != 0 && tx.isEmpty()) {
+      status |= DONE;
+    }
+    return status;
+  }
+
+  /*
+   * A ring of bytes, held as ints.
+   */
+  private static final class Fifo {
+
+    private final int[] values = new int[FIFO_DEPTH];
+
+    private int head;
+
+    private int size;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    boolean isFull() {
+      return size == FIFO_DEPTH;
+    }
+
+    void add(int value) {
+      values[(head + size++) % FIFO_DEPTH] = value;
+    }
+
+    int take() {
+      final int value = values[head];
+      head = (head + 1) % FIFO_DEPTH;
+      size--;
+      return value;
+    }
+
+    void clear() {
+      head = 0;
+      size = 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,33 @@
+package org.codebrothers.jpio.simulator;
+
+/**
+ * A device on the simulated SPI bus. Called by the {@link SPISimulator} whilst
+ * it holds its lock, so a slave sees one call at a time.
+ */
+public interface SPISlave {
+
+  /**
+   * Called when a transfer starts, TA is set.
+   * 
+   * @param chipSelect
+   *          The chip select line in use, 0 to 2.
+   */
+  void select(int chipSelect);
+
+  /**
+   * Exchanges a byte: the master's byte is shifted in as the slave's byte is
+   * shifted out.
+   * 
+   * @param value
+   *          The byte written by the master.
+   * 
+   * @return The byte returned to the master.
+   */
+  int exchange(int value);
+
+  /**
+   * Called when a transfer ends, TA is cleared.
+   */
+  void deselect();
+
+}
@@ -0,0 +1,102 @@
+package org.codebrothers.jpio.simulator;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.JPIOContext;
+
+/**
+ * A simulated set of peripherals, an alternative to {@link JPIO#initDebug()}
+ * whose registers behave like the hardware's: GPIO outputs can be read back,
+ * SPI transfers complete, clocks go busy and the PWM FIFO drains.
+ *
+ * <pre>
+ * Simulator simulator = new Simulator();
+ * simulator.install();
+ * GPIO.setPinFunction(GPIOPin.PIN4, Function.OUTPUT);
+ * GPIO.setPinValue(GPIOPin.PIN4, true);
+ * simulator.getGPIO().isHigh(GPIOPin.PIN4); // true
+ * </pre>
+ *
+ * Every model works lazily as its registers are accessed, there are no
+ * threads to start or stop. Rather than being installed, any number of
+ * simulators can be driven side by side through their contexts:
+ *
+ * <pre>
+ * Simulator board = new Simulator();
+ * GPIOPin.PIN4.setFunction(board.getContext(), Function.OUTPUT);
+ * GPIOPin.PIN4.setValue(board.getContext(), true);
+ * </pre>
+ */
+public class Simulator {
+
+  /*
+   * The number of registers in each bank, as for the debug banks.
+   */
+  static final int REGISTERS = 45;
+
+  private final GPIOSimulator gpio;
+
+  private final ClockSimulator clock;
+
+  private final PWMSimulator pwm;
+
+  private final SPISimulator spi0;
+
+  private final JPIOContext context;
+
+  /**
+   * Constructs the peripherals, with MOSI looped back to MISO.
+   */
+  public Simulator() {
+    this(new LoopbackSlave());
+  }
+
+  /**
+   * Constructs the peripherals, with a slave on the SPI bus.
+   *
+   * @param slave
+   *          The SPI slave.
+   */
+  public Simulator(SPISlave slave) {
+    this.gpio = new GPIOSimulator();
+    this.clock = new ClockSimulator();
+    this.pwm = new PWMSimulator(clock);
+    this.spi0 = new SPISimulator(slave);
+    this.context = new JPIOContext(gpio, clock, pwm, spi0);
+  }
+
+  /**
+   * Configures JPIO with the simulated peripherals. Like the other ways of
+   * initialising JPIO, this only has an effect the first time JPIO is
+   * initialised.
+   */
+  public void install() {
+    JPIO.init(gpio, clock, pwm, spi0);
+  }
+
+  /**
+   * The context which drives these peripherals, independently of JPIO's
+   * default context and of every other simulator.
+   *
+   * @return The context.
+   */
+  public JPIOContext getContext() {
+    return context;
+  }
+
+  public GPIOSimulator getGPIO() {
+    return gpio;
+  }
+
+  public ClockSimulator getClock() {
+    return clock;
+  }
+
+  public PWMSimulator getPWM() {
+    return pwm;
+  }
+
+  public SPISimulator getSPI0() {
+    return spi0;
+  }
+
+}
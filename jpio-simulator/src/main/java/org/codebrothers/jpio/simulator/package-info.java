@@ -0,0 +1,5 @@
+/**
+ * Behavioural models of the BCM2835 peripherals, implemented as register
+ * banks, so the drivers can be run, tested and benchmarked without hardware.
+ */
+package org.codebrothers.jpio.simulator;
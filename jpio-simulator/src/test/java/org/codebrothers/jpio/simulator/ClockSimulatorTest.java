@@ -0,0 +1,71 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.clock.Clock;
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.clock.ClockConfig;
+import org.codebrothers.jpio.clock.ClockMash;
+import org.codebrothers.jpio.clock.ClockSource;
+import org.junit.Test;
+
+/**
+ * Drives the clock driver against the simulated clock registers.
+ */
+public class ClockSimulatorTest {
+
+  private static final int BUSY = 1 << 7;
+
+  private static final long STOP_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  @Test
+  public void busyWhilstEnabledAndUntilStopped() {
+    final ClockSimulator clock = new ClockSimulator(STOP_NANOS);
+    final JPIOContext context = context(clock);
+    final int control = ClockChannel.CLOCK0.controlRegister;
+    assertEquals(0, clock.get(control) & BUSY);
+
+    Clock.enable(context, ClockChannel.CLOCK0);
+    assertEquals(BUSY, clock.get(control) & BUSY);
+
+    // disabling waits out the stop time
+    final long start = System.nanoTime();
+    Clock.disable(context, ClockChannel.CLOCK0);
+    assertTrue(System.nanoTime() - start >= STOP_NANOS);
+    assertEquals(0, clock.get(control) & BUSY);
+  }
+
+  @Test
+  public void applyWaitsForIdleAndSetsTheFrequency() {
+    final ClockSimulator clock = new ClockSimulator(STOP_NANOS);
+    final JPIOContext context = context(clock);
+    Clock.enable(context, ClockChannel.CLOCK1);
+
+    final long idleNs = Clock.apply(context, ClockChannel.CLOCK1, new ClockConfig(ClockSource.OSCILLATOR,
+        ClockMash.INT, 4));
+    // timed from just after the disabling write
+    assertTrue(idleNs > STOP_NANOS / 2);
+    assertEquals(ClockSource.OSCILLATOR.frequency / 4.0, clock.getFrequency(ClockChannel.CLOCK1), 1e-6);
+    assertEquals(0, clock.getGlitches());
+  }
+
+  @Test
+  public void writesWithoutThePasswordAreIgnored() {
+    final ClockSimulator clock = new ClockSimulator();
+    final int control = ClockChannel.CLOCK2.controlRegister;
+
+    clock.put(control, 1 << 4);
+    assertEquals(0, clock.get(control));
+    assertEquals(1, clock.getRejected());
+  }
+
+  private static JPIOContext context(ClockSimulator clock) {
+    final Simulator simulator = new Simulator();
+    return new JPIOContext(simulator.getGPIO(), clock, simulator.getPWM(), simulator.getSPI0());
+  }
+
+}
@@ -0,0 +1,55 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.gpio.Function;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.junit.Test;
+
+/**
+ * Drives the GPIO driver against the simulated GPIO registers.
+ */
+public class GPIOSimulatorTest {
+
+  @Test
+  public void outputLevelReadsBack() {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    GPIOPin.PIN4.setFunction(context, Function.OUTPUT);
+
+    GPIOPin.PIN4.setValue(context, true);
+    assertTrue(simulator.getGPIO().isHigh(GPIOPin.PIN4));
+    assertTrue(GPIOPin.PIN4.getValue(context));
+
+    GPIOPin.PIN4.setValue(context, false);
+    assertFalse(simulator.getGPIO().isHigh(GPIOPin.PIN4));
+    assertFalse(GPIOPin.PIN4.getValue(context));
+  }
+
+  @Test
+  public void inputFollowsTheDrivenLevel() {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    GPIOPin.PIN17.setFunction(context, Function.INPUT);
+
+    simulator.getGPIO().drive(GPIOPin.PIN17, true);
+    assertTrue(GPIOPin.PIN17.getValue(context));
+
+    simulator.getGPIO().drive(GPIOPin.PIN17, false);
+    assertFalse(GPIOPin.PIN17.getValue(context));
+  }
+
+  @Test
+  public void outputIgnoresTheDrivenLevel() {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    GPIOPin.PIN22.setFunction(context, Function.OUTPUT);
+    GPIOPin.PIN22.setValue(context, true);
+
+    simulator.getGPIO().drive(GPIOPin.PIN22, false);
+    assertTrue(GPIOPin.PIN22.getValue(context));
+  }
+
+}
@@ -0,0 +1,203 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codebrothers.jpio.JPIO;
+import org.codebrothers.jpio.gpio.Function;
+import org.codebrothers.jpio.gpio.GPIO;
+import org.codebrothers.jpio.gpio.GPIOPin;
+import org.codebrothers.jpio.port.shift595.Shift595;
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+import org.codebrothers.jpio.register.RegisterBank;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Drives {@link JPIO#shiftOut(int[], int, int, int, int)},
+ * {@link JPIO#sampleLevels(long[], int)} and {@link JPIO#replay(int[], int)}
+ * without the native backend, against a simulated GPIO installed as JPIO's
+ * default banks and recording every write and barrier.
+ */
+public class JPIOBulkTest {
+
+  private static final int GPSET0 = 7;
+  private static final int GPCLR0 = 10;
+
+  private static final GPIOPin DATA = GPIOPin.PIN17;
+  private static final GPIOPin CLOCK = GPIOPin.PIN27;
+  private static final GPIOPin LATCH = GPIOPin.PIN22;
+
+  /*
+   * Marks a barrier in the recorded accesses.
+   */
+  private static final int[] FENCE = new int[0];
+
+  private static RecordingBank gpio;
+
+  @BeforeClass
+  public static void install() {
+    final Simulator simulator = new Simulator();
+    gpio = new RecordingBank(simulator.getGPIO());
+    JPIO.init(gpio, simulator.getClock(), simulator.getPWM(), simulator.getSPI0());
+    // JPIO can only be initialised once per JVM
+    assertSame(gpio, JPIO.GPIO);
+  }
+
+  @Before
+  public void clear() {
+    gpio.accesses.clear();
+  }
+
+  @Test
+  public void shiftOutPulsesTheClockPerBitThenLatches() {
+    JPIO.shiftOut(new int[] { 0x5 }, 3, DATA.pinValue, CLOCK.pinValue, LATCH.pinValue);
+
+    final int[][] expected = { write(GPSET0, DATA), write(GPCLR0, CLOCK), write(GPSET0, CLOCK),
+        write(GPCLR0, DATA), write(GPCLR0, CLOCK), write(GPSET0, CLOCK), write(GPSET0, DATA),
+        write(GPCLR0, CLOCK), write(GPSET0, CLOCK), write(GPCLR0, LATCH), write(GPSET0, LATCH), FENCE };
+    assertArrayEquals(expected, gpio.accesses.toArray());
+  }
+
+  @Test
+  public void shift595FlushesTheWholeChainInOneBatch() {
+    final int bits = 576;
+    final Shift595 port = new Shift595(DATA, CLOCK, LATCH, bits);
+    final boolean[] pattern = new boolean[bits];
+    assertTrue(port.beginAtomic());
+    for (int i = 0; i < bits; i++) {
+      pattern[i] = i % 3 == 0 ^ i >= bits / 2;
+      port.setPinValue(i, pattern[i]);
+    }
+    gpio.accesses.clear();
+    port.completeAtomic();
+
+    // the clear pulse's batch, empty without a clear pin, then JPIO.shiftOut's
+    // single batch: every edge in order and one barrier for the whole chain
+    final List<int[]> accesses = gpio.accesses;
+    assertSame(FENCE, accesses.get(0));
+    assertSame(FENCE, accesses.get(accesses.size() - 1));
+    final int first = 1;
+    assertEquals(bits * 3 + 2, accesses.size() - 1 - first);
+    for (int i = first; i < accesses.size() - 1; i++) {
+      assertTrue("Barrier at " + i, accesses.get(i) != FENCE);
+    }
+
+    // the data level at each rising clock edge is the pattern, then one latch
+    boolean data = false;
+    final List<Boolean> shifted = new ArrayList<Boolean>();
+    int latches = 0;
+    for (int[] access : accesses.subList(first, accesses.size() - 1)) {
+      final boolean set = access[0] == GPSET0;
+      if (access[1] == DATA.pinValue) {
+        data = set;
+      } else if (access[1] == CLOCK.pinValue && set) {
+        shifted.add(data);
+      } else if (access[1] == LATCH.pinValue && set) {
+        latches++;
+      }
+    }
+    assertEquals(bits, shifted.size());
+    for (int i = 0; i < bits; i++) {
+      assertEquals("Bit " + i, pattern[i], shifted.get(i));
+    }
+    assertEquals(1, latches);
+  }
+
+  @Test
+  public void sampleLevelsReadsBothBanks() {
+    GPIO.setPinFunction(GPIOPin.PIN4, Function.OUTPUT);
+    GPIO.setPinFunction(GPIOPin.PIN40, Function.OUTPUT);
+    GPIO.setPinValue(GPIOPin.PIN4, true);
+    GPIO.setPinValue(GPIOPin.PIN40, true);
+
+    final long[] samples = new long[3];
+    JPIO.sampleLevels(samples, 2);
+
+    for (int i = 0; i < 2; i++) {
+      assertTrue((samples[i] & 1L << 4) != 0);
+      assertTrue((samples[i] & 1L << 40) != 0);
+    }
+    assertEquals(0, samples[2]);
+  }
+
+  @Test
+  public void replayWritesInOrder() {
+    JPIO.replay(new int[] { GPSET0, DATA.pinValue, GPCLR0, DATA.pinValue, 0 }, 4);
+
+    assertArrayEquals(new int[][] { write(GPSET0, DATA), write(GPCLR0, DATA), FENCE }, gpio.accesses.toArray());
+  }
+
+  @Test
+  public void replayRejectsRegistersOutOfRange() {
+    assertRejected(new int[] { GPSET0, 1, gpio.size(), 1 });
+    assertRejected(new int[] { GPSET0, 1, -1, 1 });
+  }
+
+  private static void assertRejected(int[] program) {
+    try {
+      JPIO.replay(program, program.length);
+      fail("Register " + program[2] + " was replayed.");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    // nothing is written once any register is out of range
+    assertEquals(0, gpio.accesses.size());
+  }
+
+  private static int[] write(int register, GPIOPin pin) {
+    return new int[] { register, pin.pinValue };
+  }
+
+  /*
+   * Passes accesses through, recording each write as its register and value
+   * and each barrier as FENCE.
+   */
+  private static final class RecordingBank extends AbstractRegisterBank {
+
+    private final RegisterBank bank;
+
+    final List<int[]> accesses = new ArrayList<int[]>();
+
+    RecordingBank(RegisterBank bank) {
+      this.bank = bank;
+    }
+
+    @Override
+    public int size() {
+      return bank.size();
+    }
+
+    @Override
+    public int get(int index) {
+      return bank.get(index);
+    }
+
+    @Override
+    public void put(int index, int value) {
+      accesses.add(new int[] { index, value });
+      bank.put(index, value);
+    }
+
+    @Override
+    public void putOrdered(int index, int value) {
+      accesses.add(new int[] { index, value });
+      bank.putOrdered(index, value);
+    }
+
+    @Override
+    public void fence() {
+      accesses.add(FENCE);
+      bank.fence();
+    }
+
+  }
+
+}
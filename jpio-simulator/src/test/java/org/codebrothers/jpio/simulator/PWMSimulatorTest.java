@@ -0,0 +1,81 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.clock.Clock;
+import org.codebrothers.jpio.clock.ClockChannel;
+import org.codebrothers.jpio.clock.ClockConfig;
+import org.codebrothers.jpio.clock.ClockMash;
+import org.codebrothers.jpio.clock.ClockSource;
+import org.codebrothers.jpio.pwm.PWM;
+import org.codebrothers.jpio.pwm.PWMChannel;
+import org.codebrothers.jpio.pwm.PWMControl;
+import org.codebrothers.jpio.pwm.PWMStatus;
+import org.junit.Test;
+
+/**
+ * Drives the PWM driver against the simulated PWM FIFO.
+ */
+public class PWMSimulatorTest {
+
+  /*
+   * The slowest PWM clock, a word every 32 cycles takes about 7ms.
+   */
+  private static final ClockConfig SLOW_CLOCK = new ClockConfig(ClockSource.OSCILLATOR, ClockMash.INT, 4095);
+
+  @Test
+  public void fifoHoldsItsWordsWithoutAClock() throws InterruptedException {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    fill(context);
+
+    Thread.sleep(20);
+    assertEquals(0, simulator.getPWM().getWordsSent());
+    assertEquals(PWMStatus.FIFO_FULL.value, PWM.getStatusRegister(context) & PWMStatus.FIFO_FULL.value);
+  }
+
+  @Test
+  public void timeBeforeTheClockStartsIsNotCounted() throws InterruptedException {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    fill(context);
+
+    // long enough to drain the FIFO, had the clock been running
+    Thread.sleep(100);
+    Clock.apply(context, ClockChannel.PWM, SLOW_CLOCK);
+
+    final int status = PWM.getStatusRegister(context);
+    assertFalse((status & PWMStatus.FIFO_EMPTY.value) != 0);
+    assertFalse((status & PWMStatus.CHANNEL1_GAP.value) != 0);
+  }
+
+  @Test
+  public void fifoDrainsOnceTheClockRuns() throws InterruptedException {
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = simulator.getContext();
+    fill(context);
+    Clock.apply(context, ClockChannel.PWM, SLOW_CLOCK);
+
+    Thread.sleep(150);
+    assertEquals(PWMSimulator.FIFO_DEPTH, simulator.getPWM().getWordsSent());
+    assertEquals(PWMSimulator.FIFO_DEPTH, simulator.getPWM().getLastWord());
+    final int status = PWM.getStatusRegister(context);
+    assertEquals(PWMStatus.FIFO_EMPTY.value, status & PWMStatus.FIFO_EMPTY.value);
+    assertEquals(PWMStatus.CHANNEL1_GAP.value, status & PWMStatus.CHANNEL1_GAP.value);
+  }
+
+  /*
+   * Fills the FIFO with the words 1 to 8 and enables channel 1 on it.
+   */
+  private static void fill(JPIOContext context) {
+    PWM.setRange(context, PWMChannel.PWM0, 32);
+    for (int i = 1; i <= PWMSimulator.FIFO_DEPTH; i++) {
+      PWM.writeFifo(context, i);
+    }
+    PWM.setControl(context, PWMChannel.PWM0, PWMControl.USE_FIFO);
+    PWM.setControl(context, PWMChannel.PWM0, PWMControl.ENABLE);
+  }
+
+}
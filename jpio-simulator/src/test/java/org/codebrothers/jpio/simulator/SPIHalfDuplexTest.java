@@ -0,0 +1,194 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.register.AbstractRegisterBank;
+import org.codebrothers.jpio.register.RegisterBank;
+import org.codebrothers.jpio.spi.SPI;
+import org.codebrothers.jpio.spi.SPIChipSelect;
+import org.codebrothers.jpio.spi.SPIControl;
+import org.codebrothers.jpio.spi.SPIDataMode;
+import org.codebrothers.jpio.spi.SPIDevice;
+import org.codebrothers.jpio.spi.SPIDivisor;
+import org.junit.Test;
+
+/**
+ * Drives {@link SPI#transferHalfDuplex(JPIOContext, ByteBuffer, ByteBuffer)}
+ * against the simulated SPI0, with a slave which answers once the command has
+ * been clocked in.
+ */
+public class SPIHalfDuplexTest {
+
+  private static final int CS = 0;
+  private static final int FIFO = 1;
+
+  @Test
+  public void commandThenResponseInOneTransfer() {
+    final ScriptedSlave slave = new ScriptedSlave(new byte[] { 0x0B, 0x42 }, new byte[] { 0x11, 0x22, 0x33 });
+    final SPISimulator spi0 = new SPISimulator(slave);
+    final RecordingBank recording = new RecordingBank(spi0);
+    final Simulator simulator = new Simulator();
+    final JPIOContext context = new JPIOContext(simulator.getGPIO(), simulator.getClock(), simulator.getPWM(),
+        recording);
+    SPI.enter(context);
+    SPI.select(context, new SPIDevice(SPIChipSelect.CS0, SPIDataMode.MODE0, SPIDivisor.DIVIDER_64));
+
+    final ByteBuffer command = ByteBuffer.wrap(new byte[] { 0x0B, 0x42 });
+    final ByteBuffer response = ByteBuffer.allocate(3);
+    final int read = SPI.transferHalfDuplex(context, command, response);
+
+    assertEquals(3, read);
+    assertEquals(2, command.position());
+    assertEquals(3, response.position());
+    assertArrayEquals(new byte[] { 0x11, 0x22, 0x33 }, response.array());
+    // the chip select is held across the turnaround
+    assertEquals(1, slave.selections);
+    assertEquals(0, slave.chipSelect);
+    assertFalse(slave.selected);
+    assertArrayEquals(new int[] { 0x0B, 0x42, 0, 0, 0 }, slave.received());
+    // REN is clear for the command, set for the response and cleared after
+    final List<Boolean> readEnabled = recording.readEnabledAtFifoWrites;
+    assertEquals(5, readEnabled.size());
+    assertFalse(readEnabled.get(0));
+    assertFalse(readEnabled.get(1));
+    assertTrue(readEnabled.get(2));
+    assertTrue(readEnabled.get(3));
+    assertTrue(readEnabled.get(4));
+    assertEquals(0, spi0.get(CS) & SPIControl.READ_ENABLE.value);
+    assertEquals(0, spi0.get(CS) & SPIControl.TRANSFER_ACTIVE.value);
+  }
+
+  @Test
+  public void responseLongerThanTheFifo() {
+    final byte[] expected = new byte[SPISimulator.FIFO_DEPTH * 4 + 3];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (byte) (i * 7);
+    }
+    final ScriptedSlave slave = new ScriptedSlave(new byte[] { 0x03 }, expected);
+    final Simulator simulator = new Simulator(slave);
+    final JPIOContext context = simulator.getContext();
+    SPI.enter(context);
+
+    final ByteBuffer response = ByteBuffer.allocateDirect(expected.length);
+    SPI.transferHalfDuplex(context, ByteBuffer.wrap(new byte[] { 0x03 }), response);
+
+    final byte[] actual = new byte[expected.length];
+    response.flip();
+    response.get(actual);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void missingCommandRejectedBeforeTheBusIsTouched() {
+    final ScriptedSlave slave = new ScriptedSlave(new byte[0], new byte[] { 0x11 });
+    final Simulator simulator = new Simulator(slave);
+    final JPIOContext context = simulator.getContext();
+    SPI.enter(context);
+    final int control = context.spi0().get(CS);
+
+    try {
+      SPI.transferHalfDuplex(context, null, ByteBuffer.allocate(1));
+      fail("A null command was accepted.");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    assertEquals(control, context.spi0().get(CS));
+    assertEquals(0, slave.selections);
+  }
+
+  /*
+   * Expects a command, answering zeros whilst it is clocked in then the
+   * response once it has been.
+   */
+  private static final class ScriptedSlave implements SPISlave {
+
+    private final byte[] command;
+    private final byte[] response;
+    private final List<Integer> received = new ArrayList<Integer>();
+
+    int selections;
+    int chipSelect = -1;
+    boolean selected;
+
+    ScriptedSlave(byte[] command, byte[] response) {
+      this.command = command;
+      this.response = response;
+    }
+
+    @Override
+    public void select(int chipSelect) {
+      selections++;
+      this.chipSelect = chipSelect;
+      selected = true;
+      received.clear();
+    }
+
+    @Override
+    public int exchange(int value) {
+      final int index = received.size();
+      received.add(value);
+      if (index < command.length) {
+        assertEquals(command[index] & 0xFF, value);
+        return 0;
+      }
+      return response[index - command.length];
+    }
+
+    @Override
+    public void deselect() {
+      selected = false;
+    }
+
+    int[] received() {
+      final int[] values = new int[received.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = received.get(i);
+      }
+      return values;
+    }
+
+  }
+
+  /*
+   * Passes accesses through, noting whether REN was set at each FIFO write.
+   */
+  private static final class RecordingBank extends AbstractRegisterBank {
+
+    private final RegisterBank bank;
+
+    final List<Boolean> readEnabledAtFifoWrites = new ArrayList<Boolean>();
+
+    RecordingBank(RegisterBank bank) {
+      this.bank = bank;
+    }
+
+    @Override
+    public int size() {
+      return bank.size();
+    }
+
+    @Override
+    public int get(int index) {
+      return bank.get(index);
+    }
+
+    @Override
+    public void put(int index, int value) {
+      if (index == FIFO) {
+        readEnabledAtFifoWrites.add((bank.get(CS) & SPIControl.READ_ENABLE.value) != 0);
+      }
+      bank.put(index, value);
+    }
+
+  }
+
+}
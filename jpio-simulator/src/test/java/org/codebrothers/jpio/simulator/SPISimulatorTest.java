@@ -0,0 +1,52 @@
+package org.codebrothers.jpio.simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.codebrothers.jpio.JPIOContext;
+import org.codebrothers.jpio.spi.SPI;
+import org.codebrothers.jpio.spi.SPIChipSelect;
+import org.codebrothers.jpio.spi.SPIDataMode;
+import org.codebrothers.jpio.spi.SPIDevice;
+import org.codebrothers.jpio.spi.SPIDivisor;
+import org.junit.Test;
+
+/**
+ * Drives the SPI driver against the simulated SPI0, with MOSI looped back to
+ * MISO.
+ */
+public class SPISimulatorTest {
+
+  @Test
+  public void singleByteLoopsBack() {
+    final JPIOContext context = enter();
+
+    assertEquals((byte) 0xA5, SPI.transfer(context, (byte) 0xA5));
+    assertEquals((byte) 0x3C, SPI.transfer(context, (byte) 0x3C));
+  }
+
+  @Test
+  public void blockLongerThanTheFifoLoopsBack() {
+    final JPIOContext context = enter();
+    final byte[] sent = new byte[SPISimulator.FIFO_DEPTH * 3 + 5];
+    for (int i = 0; i < sent.length; i++) {
+      sent[i] = (byte) (i * 13 + 1);
+    }
+
+    final ByteBuffer tx = ByteBuffer.wrap(sent);
+    final ByteBuffer rx = ByteBuffer.allocate(sent.length);
+    assertEquals(sent.length, SPI.transfer(context, tx, rx));
+    assertEquals(sent.length, rx.position());
+    assertArrayEquals(sent, rx.array());
+  }
+
+  private static JPIOContext enter() {
+    final JPIOContext context = new Simulator().getContext();
+    SPI.enter(context);
+    SPI.select(context, new SPIDevice(SPIChipSelect.CS0, SPIDataMode.MODE0, SPIDivisor.DIVIDER_64));
+    return context;
+  }
+
+}